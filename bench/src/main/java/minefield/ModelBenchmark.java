@@ -0,0 +1,42 @@
+package minefield;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+//Model construction and neighbor count lookups, by board dimension and mine density.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+    @Param({"100", "1000", "5000"})
+    int size;
+
+    @Param({"5", "20"})
+    int percent;
+
+    private MineFieldModel model;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        model = new MineFieldModel(size, size, percent);
+        random = new SplittableRandom(42);
+    }
+
+    //Construction includes initGame: allocating layers, placing mines and building counts.
+    @Benchmark
+    public MineFieldModel construct() {
+        return new MineFieldModel(size, size, percent);
+    }
+
+    //Neighbor count at a pseudo-random cell.
+    @Benchmark
+    public int neighborCount() {
+        return model.getNeighborMineCount(random.nextInt(size), random.nextInt(size));
+    }
+}
@@ -0,0 +1,33 @@
+package minefield;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//Moves on a mine-free board walking back and forth, so game never ends. Mine density doesn't
+//change what a move costs, so only board dimension is varied.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MoveBenchmark {
+    @Param({"100", "1000", "5000"})
+    int size;
+
+    private MineFieldModel model;
+    private boolean back;
+
+    @Setup
+    public void setUp() {
+        model = new MineFieldModel(size, size, 0);
+        back = false;
+    }
+
+    @Benchmark
+    public MoveOutcome move() {
+        back = !back;
+        return model.tryMove(back ? Heading.SE : Heading.NW);
+    }
+}
@@ -0,0 +1,51 @@
+package minefield;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+//Saving and loading in binary format, by board dimension and mine density.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+    @Param({"100", "1000", "5000"})
+    int size;
+
+    @Param({"5", "20"})
+    int percent;
+
+    private MineFieldModel model;
+    private File saved;
+    private File scratch;
+
+    @Setup
+    public void setUp() throws IOException {
+        model = new MineFieldModel(size, size, percent);
+        saved = File.createTempFile("minefield-bench", ".mfld");
+        scratch = File.createTempFile("minefield-bench", ".mfld");
+        model.save(saved);
+    }
+
+    @TearDown
+    public void tearDown() {
+        saved.delete();
+        scratch.delete();
+    }
+
+    @Benchmark
+    public long save() throws IOException {
+        model.save(scratch);
+        return scratch.length();
+    }
+
+    @Benchmark
+    public MineFieldModel load() throws IOException {
+        return MineFieldModel.load(saved);
+    }
+}
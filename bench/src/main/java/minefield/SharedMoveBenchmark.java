@@ -0,0 +1,48 @@
+package minefield;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Moves on a shared mine-free board, one player per benchmark thread and one thread per core.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class SharedMoveBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Board {
+        @Param({"100", "1000", "5000"})
+        int size;
+
+        SharedMineFieldModel model;
+        final AtomicInteger nextPlayer = new AtomicInteger();
+
+        @Setup
+        public void setUp() {
+            model = new SharedMineFieldModel(size, size, Runtime.getRuntime().availableProcessors(), new MineGenerator(0));
+            nextPlayer.set(0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Player {
+        int player;
+        boolean back;
+
+        @Setup
+        public void setUp(Board board) {
+            player = board.nextPlayer.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    public MoveOutcome sharedMove(Board board, Player p) {
+        p.back = !p.back;
+        return board.model.tryMove(p.player, p.back ? Heading.SE : Heading.NW);
+    }
+}
@@ -0,0 +1,49 @@
+package minefield;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+//Full view refresh off-screen: label grid for small boards, painted canvas for large ones.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ViewBenchmark {
+    @Param({"100", "1000", "5000"})
+    int size;
+
+    @Param({"5", "20"})
+    int percent;
+
+    private MineFieldView view;
+    private MineFieldCanvas canvas;
+    private BufferedImage image;
+
+    @Setup
+    public void setUp() {
+        view = new MineFieldView(new MineFieldModel(size, size, percent));
+        view.setSize(1000, 600);
+        canvas = view.getCanvas();
+        image = new BufferedImage(1000, 600, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Benchmark
+    public int modelChanged() {
+        view.modelChanged();
+        view.flushChanges();
+        if (canvas != null) {
+            // Canvas only invalidates on refresh; painting visible area is the real cost.
+            canvas.setSize(canvas.getPreferredSize());
+            Graphics2D g = image.createGraphics();
+            g.setClip(0, 0, image.getWidth(), image.getHeight());
+            canvas.paint(g);
+            g.dispose();
+        }
+        return view.getComponentCount();
+    }
+}
@@ -1,6 +1,7 @@
 
 package minefield;
 import java.io.File;
+import java.util.function.IntConsumer;
 
 public interface AppFactory {
     // Create new model.
@@ -22,5 +23,8 @@ public interface AppFactory {
     Command makeEditCommand(MineFieldModel model, String type);
 
     void save(MineFieldModel model, File file) throws Exception;
+
+    // Save snapshot off EDT, reporting percent done to progress (may be null).
+    void save(MineFieldSnapshot snapshot, File file, IntConsumer progress) throws Exception;
 }
 
@@ -2,7 +2,12 @@ package minefield;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 public class AppPanel extends JPanel {
 
@@ -11,6 +16,16 @@ public class AppPanel extends JPanel {
     protected AppFactory factory; // Factory that builds model, view, commands
     protected JMenuBar menuBar;
     private File currentFile;// Main menu bar
+    protected JLabel status;              // Status line for background work such as saving
+    private MoveJournal journal;          // Logs moves made since current file was last saved
+    private GameRecorder recorder;        // Records current game for replay, null when not recording
+    private ReplayPlayer replayPlayer;    // Plays replay shown in view, null when a game is shown
+    private JCheckBoxMenuItem recordItem;
+    private SpectatorBroadcaster spectators; // Shares current game with spectators, null when not shared
+    private JCheckBoxMenuItem spectateItem;
+    private MineProbabilityMap odds;      // Mine odds shown in view, null when hidden
+    private SwingWorker<Void, Integer> saver; // Background save in progress, null when none
+    private String commandMessage;        // Last command message put in status line, null when none
 
     public AppPanel(AppFactory factory) {
         super();
@@ -21,6 +36,8 @@ public class AppPanel extends JPanel {
         // Layout: put view in center
         setLayout(new BorderLayout());
         add(view, BorderLayout.CENTER);
+        status = new JLabel(" ");
+        add(status, BorderLayout.SOUTH);
 
         // Create menu bar
         menuBar = createMenuBar();
@@ -50,14 +67,48 @@ public class AppPanel extends JPanel {
 
         fileMenu.addSeparator();
 
+        recordItem = new JCheckBoxMenuItem("Record Replay");
+        recordItem.addActionListener(e -> toggleRecording());
+        fileMenu.add(recordItem);
+
+        JMenuItem openReplayItem = new JMenuItem("Open Replay");
+        openReplayItem.addActionListener(e -> openReplay());
+        fileMenu.add(openReplayItem);
+
+        spectateItem = new JCheckBoxMenuItem("Allow Spectators");
+        spectateItem.addActionListener(e -> toggleSpectators());
+        fileMenu.add(spectateItem);
+
+        fileMenu.addSeparator();
+
         JMenuItem exitItem = new JMenuItem("Exit");
-        exitItem.addActionListener(e -> System.exit(0));
+        exitItem.addActionListener(e -> {
+            closeJournal();
+            stopSpectators();
+            System.exit(0);
+        });
         fileMenu.add(exitItem);
 
         bar.add(fileMenu);
 
         // Edit menu
         JMenu editMenu = new JMenu("Edit");
+        JMenuItem undo = new JMenuItem("Undo");
+        undo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+        undo.addActionListener(e -> edit("undo"));
+        editMenu.add(undo);
+
+        JMenuItem redo = new JMenuItem("Redo");
+        redo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+        redo.addActionListener(e -> edit("redo"));
+        editMenu.add(redo);
+
+        JCheckBoxMenuItem oddsItem = new JCheckBoxMenuItem("Show Mine Odds");
+        oddsItem.addActionListener(e -> toggleOdds());
+        editMenu.add(oddsItem);
+
+        editMenu.addSeparator();
+
         JMenuItem moveN = new JMenuItem("Move North");
         moveN.addActionListener(e -> edit("moveN"));
         editMenu.add(moveN);
@@ -131,7 +182,10 @@ public class AppPanel extends JPanel {
     protected void newFile() {
         if (confirmDiscardChanges()) {
             MineFieldModel newModel = factory.makeModel();
+            closeJournal();
+            closeReplay();
             setModel(newModel);
+            followModel();
         }
     }
 
@@ -144,7 +198,13 @@ public class AppPanel extends JPanel {
                 try {
                     // Use factory to load model
                     MineFieldModel newModel = ((MineFieldFactory) factory).open(file);
+                    closeJournal();
+                    closeReplay();
                     setModel(newModel);
+                    followModel();
+                    currentFile = file;
+                    journal = MoveJournal.resume(newModel, file, MoveJournal.DEFAULT_CHECKPOINT_INTERVAL);
+                    journal.setErrorHandler(this::journalFailed);
                 } catch (Exception ex) {
                     JOptionPane.showMessageDialog(this,
                             "Open failed: " + ex.getMessage(),
@@ -161,17 +221,7 @@ public class AppPanel extends JPanel {
         if (currentFile == null) {
             saveAsFile();
         } else {
-            try {
-                factory.save(model, currentFile);
-                model.setDirty(false);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(
-                        view,
-                        "Save failed: " + ex.getMessage(),
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE
-                );
-            }
+            saveInBackground(currentFile);
         }
     }
 
@@ -179,29 +229,308 @@ public class AppPanel extends JPanel {
         JFileChooser chooser = new JFileChooser();
         int result = chooser.showSaveDialog(view);
         if (result == JFileChooser.APPROVE_OPTION) {
-            File file = chooser.getSelectedFile();
+            saveInBackground(chooser.getSelectedFile());
+        }
+    }
+
+    //Saves snapshot of current model on worker thread so EDT stays responsive. Model is only marked
+    //clean if save succeeded and nothing changed while it was running. One save runs at a time, so
+    //saves can't finish out of order; file becomes current only if its game is still shown.
+    protected void saveInBackground(File file) {
+        if (saver != null) {
+            status.setText("Still saving, try again when done");
+            return;
+        }
+        MineFieldModel saving = model;
+        MoveJournal logging = journalFor(file);
+        MineFieldSnapshot snapshot = saving.snapshot();
+        status.setText("Saving " + file.getName() + "...");
+
+        saver = new SwingWorker<Void, Integer>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                if (logging != null) {
+                    logging.save(snapshot, percent -> publish(percent));
+                } else {
+                    factory.save(snapshot, file, percent -> publish(percent));
+                }
+                return null;
+            }
+
+            @Override
+            protected void process(List<Integer> chunks) {
+                status.setText("Saving " + file.getName() + "... " + chunks.get(chunks.size() - 1) + "%");
+            }
+
+            @Override
+            protected void done() {
+                saver = null;
+                try {
+                    get();
+                    if (saving.getVersion() == snapshot.getVersion()) {
+                        saving.setDirty(false);
+                    }
+                    if (model == saving) {
+                        currentFile = file;
+                    }
+                    status.setText("Saved " + file.getName());
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    status.setText("Save failed");
+                    JOptionPane.showMessageDialog(
+                            view,
+                            "Save failed: " + cause.getMessage(),
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE
+                    );
+                }
+            }
+        };
+        saver.execute();
+    }
+
+    //Saves on EDT and waits, for callers that must know result right away. Returns true on success.
+    protected boolean saveFileAndWait() {
+        if (saver != null) {
+            // Let background save finish first, so it can't land on top of this one. Its own
+            // done() still reports how it went.
             try {
+                saver.get();
+            } catch (InterruptedException | ExecutionException ex) {
+                // Reported by done().
+            }
+        }
+        File file = currentFile;
+        if (file == null) {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showSaveDialog(view) != JFileChooser.APPROVE_OPTION) {
+                return false;
+            }
+            file = chooser.getSelectedFile();
+        }
+        try {
+            MoveJournal logging = journalFor(file);
+            if (logging != null) {
+                logging.save(model.snapshot(), null);
+            } else {
                 factory.save(model, file);
-                model.setDirty(false);
-                this.currentFile = file;
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(
-                        view,
-                        "Save failed: " + ex.getMessage(),
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE
-                );
             }
+            model.setDirty(false);
+            currentFile = file;
+            status.setText("Saved " + file.getName());
+            return true;
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(
+                    view,
+                    "Save failed: " + ex.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE
+            );
+            return false;
         }
     }
 
 
+    //Returns journal for saves to file, starting new one if moves were being logged for another file
+    //or not at all. Returns null if journal can't be created; saving still goes ahead without it.
+    private MoveJournal journalFor(File file) {
+        if (journal != null && journal.getCheckpoint().equals(file)) {
+            return journal;
+        }
+        closeJournal();
+        try {
+            journal = MoveJournal.create(model, file, MoveJournal.DEFAULT_CHECKPOINT_INTERVAL);
+            journal.setErrorHandler(this::journalFailed);
+        } catch (IOException ex) {
+            status.setText("Autosave journal unavailable: " + ex.getMessage());
+        }
+        return journal;
+    }
+
+    //Shows journal failure in status line; journal may report from any thread.
+    private void journalFailed(String message) {
+        SwingUtilities.invokeLater(() -> status.setText(message));
+    }
+
+    //Flushes and detaches journal of current model, if any.
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException ex) {
+                status.setText("Journal close failed: " + ex.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    //Starts recording current game, or stops and asks where to save the replay.
+    protected void toggleRecording() {
+        if (recorder == null) {
+            if (replayPlayer != null) {
+                recordItem.setSelected(false);
+                return;
+            }
+            recorder = new GameRecorder(model);
+            status.setText("Recording replay");
+            return;
+        }
+        GameRecorder finished = recorder;
+        stopRecording();
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(view) != JFileChooser.APPROVE_OPTION) {
+            status.setText("Replay discarded");
+            return;
+        }
+        try {
+            finished.toReplay(Replay.DEFAULT_CHECKPOINT_INTERVAL).write(chooser.getSelectedFile());
+            status.setText("Saved replay of " + finished.getMoveCount() + " moves");
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(view,
+                    "Replay save failed: " + ex.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void stopRecording() {
+        if (recorder != null) {
+            recorder.stop();
+            recorder = null;
+        }
+        recordItem.setSelected(false);
+    }
+
+    //Loads replay and shows it in view with playback controls. Replays are watched, not played.
+    protected void openReplay() {
+        if (!confirmDiscardChanges()) {
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            ReplayPlayer player = new ReplayPlayer(Replay.read(chooser.getSelectedFile()));
+            closeJournal();
+            closeReplay();
+            replayPlayer = player;
+            setModel(player.getModel());
+            followModel();
+            getView().setReplayControls(new ReplayControls(player));
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this,
+                    "Open replay failed: " + ex.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    //Stops any replay or recording tied to game about to be replaced.
+    private void closeReplay() {
+        stopRecording();
+        if (replayPlayer != null) {
+            replayPlayer.pause();
+            replayPlayer = null;
+            getView().setReplayControls(null);
+        }
+    }
+
+    //Starts or stops sharing current game with spectators (see SpectatorClient). Listens on all
+    //interfaces, so spectators may watch from other machines.
+    protected void toggleSpectators() {
+        if (spectators != null) {
+            stopSpectators();
+            status.setText("Spectators disconnected");
+            return;
+        }
+        try {
+            SpectatorBroadcaster broadcaster = new SpectatorBroadcaster(model, null, SpectatorBroadcaster.DEFAULT_PORT);
+            broadcaster.setErrorHandler(message -> SwingUtilities.invokeLater(() -> {
+                // Ignore if sharing was stopped or restarted meanwhile.
+                if (spectators == broadcaster) {
+                    stopSpectators();
+                    status.setText(message);
+                }
+            }));
+            spectators = broadcaster;
+            status.setText("Spectators can watch on port " + spectators.getPort());
+        } catch (IOException ex) {
+            spectateItem.setSelected(false);
+            JOptionPane.showMessageDialog(this,
+                    "Sharing failed: " + ex.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void stopSpectators() {
+        if (spectators != null) {
+            try {
+                spectators.close();
+            } catch (IOException ex) {
+                status.setText("Spectator shutdown failed: " + ex.getMessage());
+            }
+            spectators = null;
+        }
+        spectateItem.setSelected(false);
+    }
+
+    //Shows or hides mine odds of current game in view.
+    protected void toggleOdds() {
+        if (odds != null) {
+            odds.close();
+            odds = null;
+            getView().setProbabilityMap(null);
+            return;
+        }
+        odds = new MineProbabilityMap(model);
+        getView().setProbabilityMap(odds);
+    }
+
+    //Points spectators and odds at game that just replaced the previous one.
+    private void followModel() {
+        if (spectators != null) {
+            spectators.setModel(model);
+        }
+        if (odds != null) {
+            odds.close();
+            odds = new MineProbabilityMap(model);
+            getView().setProbabilityMap(odds);
+        }
+    }
+
     //Called when user selects an item from Edit menu.
     protected void edit(String type) {
+        if (replayPlayer != null) {
+            // Replay model follows recorded moves only.
+            return;
+        }
         Command cmd = factory.makeEditCommand(model, type);
         if (cmd != null) {
             cmd.execute(model);
+            showCommandMessage(cmd.getMessage());
+        }
+    }
+
+    //Called for moves from keyboard. A held key repeats moves that fail the same way, such as
+    //against a wall, and status line keeps showing one message for them all.
+    protected void move(Heading heading) {
+        if (replayPlayer != null) {
+            return;
+        }
+        MoveOutcome outcome = new MoveCommand(heading).apply(model);
+        showCommandMessage(outcome.getMessage());
+    }
+
+    //Shows command's message in status line, or clears one left there by an earlier command.
+    private void showCommandMessage(String message) {
+        if (message != null) {
+            status.setText(message);
+        } else if (commandMessage != null && commandMessage.equals(status.getText())) {
+            status.setText(" ");
         }
+        commandMessage = message;
     }
 
     //Check if model is "dirty" (has unsaved changes). If yes, confirm user wants to discard
@@ -214,10 +543,8 @@ public class AppPanel extends JPanel {
                         "Unsaved Changes",
                         JOptionPane.YES_NO_CANCEL_OPTION);
                 if (choice == JOptionPane.YES_OPTION) {
-                    // user wants to save
-                    saveFile();
-                    // If still dirty, user canceled or error happened
-                    if (mf.isDirty()) {
+                    // user wants to save; wait for it, since model is about to be replaced
+                    if (!saveFileAndWait()) {
                         return false;
                     }
                 } else if (choice == JOptionPane.CANCEL_OPTION) {
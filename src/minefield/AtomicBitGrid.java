@@ -0,0 +1,61 @@
+package minefield;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+//Row-major bit grid like BitGrid whose bits can be set from many threads without locks.
+//Each set is one atomic OR on its 64-bit word, so threads never lose each other's bits,
+//and bits only ever go from clear to set while shared.
+public class AtomicBitGrid {
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int rows;
+    private final int cols;
+    private final long[] words;
+
+    public AtomicBitGrid(int rows, int cols) {
+        this.words = new BitGrid(rows, cols).words();
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public boolean get(int r, int c) {
+        long index = (long) r * cols + c;
+        return ((long) WORDS.getAcquire(words, (int) (index >>> 6)) & (1L << index)) != 0;
+    }
+
+    //Sets cell (r, c) and returns true if this call set it, false if it was already set.
+    public boolean set(int r, int c) {
+        long index = (long) r * cols + c;
+        long bit = 1L << index;
+        long previous = (long) WORDS.getAndBitwiseOr(words, (int) (index >>> 6), bit);
+        return (previous & bit) == 0;
+    }
+
+    //Copies current bits into plain BitGrid. Concurrent sets may or may not be included.
+    public BitGrid toBitGrid() {
+        BitGrid copy = new BitGrid(rows, cols);
+        long[] target = copy.words();
+        for (int w = 0; w < words.length; w++) {
+            target[w] = (long) WORDS.getAcquire(words, w);
+        }
+        return copy;
+    }
+
+    //Number of set cells.
+    public long cardinality() {
+        long n = 0;
+        for (int w = 0; w < words.length; w++) {
+            n += Long.bitCount((long) WORDS.getAcquire(words, w));
+        }
+        return n;
+    }
+}
@@ -0,0 +1,123 @@
+package minefield;
+
+import java.util.Arrays;
+
+//Compact row-major grid of booleans packed 64 cells per long.
+//Cell (r, c) lives at bit index r * cols + c, so a 10,000 x 10,000 layer takes about 12.5 MB.
+public class BitGrid {
+    private final int rows;
+    private final int cols;
+    private final long[] words;
+
+    //Creates grid with every cell cleared.
+    public BitGrid(int rows, int cols) {
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive: " + rows + "x" + cols);
+        }
+        long cells = (long) rows * cols;
+        if (cells > (long) Integer.MAX_VALUE * 64) {
+            throw new IllegalArgumentException("Grid too large: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.words = new long[(int) ((cells + 63) >>> 6)];
+    }
+
+    //Creates copy of another grid.
+    public BitGrid(BitGrid other) {
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.words = other.words.clone();
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    //Bit index of cell (r, c) in row-major order.
+    public long index(int r, int c) {
+        return (long) r * cols + c;
+    }
+
+    //Returns true if cell (r, c) is set.
+    public boolean get(int r, int c) {
+        return get(index(r, c));
+    }
+
+    public boolean get(long index) {
+        return (words[(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    //Returns 64 cells starting at index, lowest bit first. Cells past end of grid read as clear.
+    public long getBits(long index) {
+        int w = (int) (index >>> 6);
+        int offset = (int) (index & 63);
+        long bits = words[w] >>> offset;
+        if (offset != 0 && w + 1 < words.length) {
+            bits |= words[w + 1] << (64 - offset);
+        }
+        return bits;
+    }
+
+    //Sets or clears cell (r, c).
+    public void set(int r, int c, boolean value) {
+        set(index(r, c), value);
+    }
+
+    public void set(long index, boolean value) {
+        int w = (int) (index >>> 6);
+        if (value) {
+            words[w] |= 1L << index;
+        } else {
+            words[w] &= ~(1L << index);
+        }
+    }
+
+    //Clears every cell.
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    //Number of cells in grid.
+    public long size() {
+        return (long) rows * cols;
+    }
+
+    //Number of set cells.
+    public long cardinality() {
+        long n = 0;
+        for (long w : words) {
+            n += Long.bitCount(w);
+        }
+        return n;
+    }
+
+    //Index of next set cell at or after fromIndex, or -1 if none.
+    public long nextSetBit(long fromIndex) {
+        long size = size();
+        if (fromIndex >= size) {
+            return -1;
+        }
+        int w = (int) (fromIndex >>> 6);
+        long word = words[w] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) {
+                long index = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+                return index < size ? index : -1;
+            }
+            if (++w == words.length) {
+                return -1;
+            }
+            word = words[w];
+        }
+    }
+
+    //Backing words, exposed for bulk persistence. Callers must not resize it.
+    long[] words() {
+        return words;
+    }
+}
@@ -2,4 +2,9 @@ package minefield;
 
 public abstract class Command {
     public abstract void execute(MineFieldModel model);
+
+    //Message for user about last execute, such as why nothing happened, or null if none.
+    public String getMessage() {
+        return null;
+    }
 }
@@ -0,0 +1,22 @@
+package minefield;
+
+//Option parsing helpers shared by the command-line entry points.
+final class CommandLine {
+    private CommandLine() {
+    }
+
+    //Value following option args[i]; prints usage and exits if option is last argument.
+    static String value(String[] args, int i, String usage) {
+        if (i + 1 >= args.length) {
+            fail("Missing value for " + args[i], usage);
+        }
+        return args[i + 1];
+    }
+
+    //Prints problem and usage to stderr and exits with status 2.
+    static void fail(String problem, String usage) {
+        System.err.println(problem);
+        System.err.println(usage);
+        System.exit(2);
+    }
+}
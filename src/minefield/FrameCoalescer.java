@@ -0,0 +1,92 @@
+package minefield;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+//Collects model notifications from any thread and passes them on to a listener on EDT, at most once
+//per display frame. Moves arriving in same frame are delivered together as one batch; a full refresh
+//absorbs everything pending. A single move after a quiet spell is delivered on next EDT turn, so
+//pacing only adds delay during bursts.
+public class FrameCoalescer implements MineFieldListener {
+    // About 60 frames per second.
+    public static final int FRAME_MILLIS = 16;
+    // Past this many pending moves one full refresh is cheaper, and memory stays bounded.
+    static final int MAX_PENDING = 4096;
+
+    private final MineFieldListener target;
+    private final Timer timer;
+
+    // Guarded by this: moves since last flush, whether full refresh is due, whether flush is scheduled.
+    private List<MineFieldEvent> pending = new ArrayList<>();
+    private List<MineFieldEvent> spare = new ArrayList<>();
+    private boolean full;
+    private boolean scheduled;
+    private long lastFlush;
+
+    public FrameCoalescer(MineFieldListener target) {
+        this.target = target;
+        this.timer = new Timer(FRAME_MILLIS, e -> flush());
+        timer.setRepeats(false);
+    }
+
+    @Override
+    public synchronized void modelChanged() {
+        full = true;
+        pending.clear();
+        schedule();
+    }
+
+    @Override
+    public synchronized void modelChanged(MineFieldEvent event) {
+        if (!full) {
+            if (pending.size() >= MAX_PENDING) {
+                full = true;
+                pending.clear();
+            } else {
+                pending.add(event);
+            }
+        }
+        schedule();
+    }
+
+    //Starts frame timer unless flush is already scheduled. Delay is whatever remains of current frame.
+    private void schedule() {
+        if (scheduled) {
+            return;
+        }
+        scheduled = true;
+        long sinceFlush = (System.nanoTime() - lastFlush) / 1_000_000;
+        timer.setInitialDelay((int) Math.max(0, FRAME_MILLIS - sinceFlush));
+        if (SwingUtilities.isEventDispatchThread()) {
+            timer.restart();
+        } else {
+            SwingUtilities.invokeLater(timer::restart);
+        }
+    }
+
+    //Delivers everything pending right away. Must be called on EDT.
+    public void flush() {
+        List<MineFieldEvent> batch;
+        boolean refresh;
+        synchronized (this) {
+            timer.stop();
+            batch = pending;
+            pending = spare;
+            spare = batch;
+            refresh = full;
+            full = false;
+            scheduled = false;
+            lastFlush = System.nanoTime();
+        }
+        try {
+            if (refresh) {
+                target.modelChanged();
+            } else if (!batch.isEmpty()) {
+                target.modelChanged(batch);
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package minefield;
+
+import java.util.Arrays;
+
+//Records game for replay: takes snapshot of board when started, then logs each move or undo as one byte.
+//Recording costs nothing per move beyond that byte; checkpoints are computed once, when replay is built.
+public class GameRecorder implements MineFieldListener {
+    private final MineFieldModel model;
+    private final MineFieldSnapshot start;
+    private byte[] moves = new byte[1024];
+    private int moveCount;
+
+    //Starts recording model from its current state.
+    public GameRecorder(MineFieldModel model) {
+        this.model = model;
+        this.start = model.snapshot();
+        model.addListener(this);
+    }
+
+    //Full refresh carries no move; nothing to record.
+    @Override
+    public void modelChanged() {
+    }
+
+    @Override
+    public void modelChanged(MineFieldEvent event) {
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[moveCount++] = MoveJournal.encode(event);
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    //Stops listening to model. Moves recorded so far are kept.
+    public void stop() {
+        model.removeListener(this);
+    }
+
+    //Builds replay of moves recorded so far, with checkpoint every checkpointInterval moves.
+    public Replay toReplay(int checkpointInterval) {
+        return Replay.build(start, moves, moveCount, checkpointInterval);
+    }
+}
@@ -1,12 +1,39 @@
 package minefield;
 // enumeration of possible directions players can move.
 public enum Heading {
-    N,
-    NE,
-    E,
-    SE,
-    S,
-    SW,
-    W,
-    NW
+    N(-1, 0),
+    NE(-1, 1),
+    E(0, 1),
+    SE(1, 1),
+    S(1, 0),
+    SW(1, -1),
+    W(0, -1),
+    NW(-1, -1);
+
+    // Row and column offsets for one step in this direction.
+    private final int dRow;
+    private final int dCol;
+
+    Heading(int dRow, int dCol) {
+        this.dRow = dRow;
+        this.dCol = dCol;
+    }
+
+    public int getRowDelta() {
+        return dRow;
+    }
+
+    public int getColDelta() {
+        return dCol;
+    }
+
+    //Heading for given row and column step (each -1, 0 or 1), or null for no movement.
+    public static Heading of(int dRow, int dCol) {
+        for (Heading h : values()) {
+            if (h.dRow == dRow && h.dCol == dCol) {
+                return h;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,192 @@
+package minefield;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+
+//Keyboard movement: numpad keys 1-9 (or Home/PgUp/End/PgDn for diagonals) and arrow keys, where
+//holding two arrows together moves diagonally. Holding a key keeps moving at repeat rate.
+//All moves go through a MoveInputQueue, so input lag can't pile up behind a slow model.
+//
+//Key auto-repeat from OS is ignored; a Swing Timer paces held keys instead, so rate is same on every
+//system. Some systems report auto-repeat as release plus press, so releases take effect after short
+//grace period in which a new press of same key cancels them.
+public class KeyboardMover {
+    public static final int DEFAULT_REPEAT_RATE = 10;
+    // Held key starts repeating after this long.
+    private static final int REPEAT_DELAY_MILLIS = 200;
+    // Arrows pressed within this window of each other count as one diagonal.
+    private static final int CHORD_MILLIS = 30;
+    private static final int RELEASE_GRACE_MILLIS = 15;
+
+    // Key ids 0-3 are arrows; numpad keys use 4 + heading ordinal.
+    private static final int UP = 0;
+    private static final int DOWN = 1;
+    private static final int LEFT = 2;
+    private static final int RIGHT = 3;
+    private static final int NUMPAD = 4;
+    private static final int ARROW_BITS = 0xF;
+
+    private final MoveInputQueue queue;
+    private final Timer repeatTimer;
+    private final Timer chordTimer;
+    private final Timer releaseTimer;
+    // Bit per key id: keys held down, and keys released but still within grace period.
+    private int held;
+    private int releasing;
+    // Most recent numpad heading pressed.
+    private Heading lastNumpad;
+    private int repeatRate;
+
+    //Binds movement keys on component, active whenever its window has focus.
+    public KeyboardMover(JComponent component, MoveInputQueue queue) {
+        this.queue = queue;
+        this.repeatTimer = new Timer(1000 / DEFAULT_REPEAT_RATE, e -> repeat());
+        this.chordTimer = new Timer(CHORD_MILLIS, e -> chordDone());
+        chordTimer.setRepeats(false);
+        this.releaseTimer = new Timer(RELEASE_GRACE_MILLIS, e -> releaseDone());
+        releaseTimer.setRepeats(false);
+        setRepeatRate(DEFAULT_REPEAT_RATE);
+
+        bind(component, KeyEvent.VK_UP, UP);
+        bind(component, KeyEvent.VK_KP_UP, UP);
+        bind(component, KeyEvent.VK_DOWN, DOWN);
+        bind(component, KeyEvent.VK_KP_DOWN, DOWN);
+        bind(component, KeyEvent.VK_LEFT, LEFT);
+        bind(component, KeyEvent.VK_KP_LEFT, LEFT);
+        bind(component, KeyEvent.VK_RIGHT, RIGHT);
+        bind(component, KeyEvent.VK_KP_RIGHT, RIGHT);
+
+        bindNumpad(component, KeyEvent.VK_NUMPAD8, Heading.N);
+        bindNumpad(component, KeyEvent.VK_NUMPAD9, Heading.NE);
+        bindNumpad(component, KeyEvent.VK_NUMPAD6, Heading.E);
+        bindNumpad(component, KeyEvent.VK_NUMPAD3, Heading.SE);
+        bindNumpad(component, KeyEvent.VK_NUMPAD2, Heading.S);
+        bindNumpad(component, KeyEvent.VK_NUMPAD1, Heading.SW);
+        bindNumpad(component, KeyEvent.VK_NUMPAD4, Heading.W);
+        bindNumpad(component, KeyEvent.VK_NUMPAD7, Heading.NW);
+        // Numpad diagonals with NumLock off.
+        bindNumpad(component, KeyEvent.VK_PAGE_UP, Heading.NE);
+        bindNumpad(component, KeyEvent.VK_PAGE_DOWN, Heading.SE);
+        bindNumpad(component, KeyEvent.VK_END, Heading.SW);
+        bindNumpad(component, KeyEvent.VK_HOME, Heading.NW);
+    }
+
+    public int getRepeatRate() {
+        return repeatRate;
+    }
+
+    //Sets how many moves per second a held key makes.
+    public void setRepeatRate(int movesPerSecond) {
+        repeatRate = Math.max(1, movesPerSecond);
+        repeatTimer.setDelay(1000 / repeatRate);
+    }
+
+    //Forgets held keys and queued moves, e.g. when game is replaced.
+    public void reset() {
+        held = 0;
+        releasing = 0;
+        repeatTimer.stop();
+        chordTimer.stop();
+        releaseTimer.stop();
+        queue.clear();
+    }
+
+    private void bindNumpad(JComponent component, int keyCode, Heading heading) {
+        bind(component, keyCode, NUMPAD + heading.ordinal());
+    }
+
+    private void bind(JComponent component, int keyCode, int id) {
+        InputMap inputs = component.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        ActionMap actions = component.getActionMap();
+        String press = "move-press-" + keyCode;
+        String release = "move-release-" + keyCode;
+        inputs.put(KeyStroke.getKeyStroke(keyCode, 0, false), press);
+        inputs.put(KeyStroke.getKeyStroke(keyCode, 0, true), release);
+        actions.put(press, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                pressed(id);
+            }
+        });
+        actions.put(release, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                released(id);
+            }
+        });
+    }
+
+    private void pressed(int id) {
+        int bit = 1 << id;
+        if ((releasing & bit) != 0) {
+            // Release and press in quick succession: auto-repeat, key is still held.
+            releasing &= ~bit;
+            return;
+        }
+        if ((held & bit) != 0) {
+            return;
+        }
+        held |= bit;
+        if (id >= NUMPAD) {
+            lastNumpad = Heading.values()[id - NUMPAD];
+            queue.offer(lastNumpad);
+            startRepeat();
+        } else {
+            // Wait briefly in case second arrow of a diagonal follows.
+            chordTimer.restart();
+        }
+    }
+
+    private void released(int id) {
+        releasing |= 1 << id;
+        releaseTimer.restart();
+    }
+
+    private void releaseDone() {
+        held &= ~releasing;
+        releasing = 0;
+        if (current() == null) {
+            repeatTimer.stop();
+            chordTimer.stop();
+        }
+    }
+
+    private void chordDone() {
+        Heading heading = current();
+        if (heading != null) {
+            queue.offer(heading);
+            startRepeat();
+        }
+    }
+
+    private void startRepeat() {
+        repeatTimer.setInitialDelay(REPEAT_DELAY_MILLIS);
+        repeatTimer.restart();
+    }
+
+    private void repeat() {
+        Heading heading = current();
+        if (heading == null) {
+            repeatTimer.stop();
+        } else {
+            queue.offerRepeat(heading);
+        }
+    }
+
+    //Heading of keys held now: latest numpad key if any is held, else combination of arrows.
+    private Heading current() {
+        if (lastNumpad != null && (held & (1 << (NUMPAD + lastNumpad.ordinal()))) != 0) {
+            return lastNumpad;
+        }
+        for (Heading h : Heading.values()) {
+            if ((held & (1 << (NUMPAD + h.ordinal()))) != 0) {
+                return h;
+            }
+        }
+        int arrows = held & ARROW_BITS;
+        int dRow = ((arrows >> DOWN) & 1) - ((arrows >> UP) & 1);
+        int dCol = ((arrows >> RIGHT) & 1) - ((arrows >> LEFT) & 1);
+        return Heading.of(dRow, dCol);
+    }
+}
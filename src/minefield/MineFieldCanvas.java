@@ -0,0 +1,345 @@
+package minefield;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+//Paints minefield directly instead of using one component per cell. Only cells inside the visible
+//rectangle are drawn, so cost depends on what is visible, not on board size. Visible cells are kept
+//in a back buffer built from TileAtlas tiles; a move patches two tiles and repaint is just a blit.
+//Meant to sit in a JScrollPane; ctrl + mouse wheel zooms.
+public class MineFieldCanvas extends JComponent implements MineFieldListener, Scrollable {
+    public static final int MIN_CELL_SIZE = 2;
+    public static final int MAX_CELL_SIZE = 64;
+    // Most cells per axis scroll pane asks room for.
+    private static final int VIEWPORT_CELLS = 60;
+
+    private MineFieldModel model;
+    private int cellSize;
+
+    // Pre-rendered tiles, built lazily once graphics configuration is known.
+    private TileAtlas atlas;
+    // Back buffer holding tiles of visible cells, and board pixel area it currently covers.
+    private BufferedImage buffer;
+    private Rectangle bufferArea = new Rectangle();
+    // Mine odds painted over hidden cells, or null for none.
+    private MineProbabilityMap odds;
+
+    // Odds colors in 5% steps from green (surely clear) through yellow to red (surely mined): translucent
+    // ones laid over tiles, and opaque ones as they look over a hidden cell, for label cells.
+    private static final int ODDS_STEPS = 20;
+    private static final Color[] ODDS_OVERLAY = new Color[ODDS_STEPS + 1];
+    private static final Color[] ODDS_OPAQUE = new Color[ODDS_STEPS + 1];
+    static {
+        int alpha = 150;
+        Color hidden = Color.DARK_GRAY;
+        for (int i = 0; i <= ODDS_STEPS; i++) {
+            double p = (double) i / ODDS_STEPS;
+            int red = (int) Math.round(255 * Math.min(1, 2 * p));
+            int green = (int) Math.round(200 * Math.min(1, 2 * (1 - p)));
+            ODDS_OVERLAY[i] = new Color(red, green, 0, alpha);
+            ODDS_OPAQUE[i] = new Color(
+                    (red * alpha + hidden.getRed() * (255 - alpha)) / 255,
+                    (green * alpha + hidden.getGreen() * (255 - alpha)) / 255,
+                    hidden.getBlue() * (255 - alpha) / 255);
+        }
+    }
+
+    public MineFieldCanvas(MineFieldModel model, int cellSize) {
+        this.model = model;
+        this.cellSize = clampCellSize(cellSize);
+        setOpaque(true);
+        setBackground(Color.DARK_GRAY);
+        addMouseWheelListener(this::mouseWheelMoved);
+    }
+
+    public MineFieldModel getModel() {
+        return model;
+    }
+
+    //Switches to new model and repaints everything.
+    public void setModel(MineFieldModel newModel) {
+        this.model = newModel;
+        invalidateBuffer();
+        revalidate();
+        repaint();
+    }
+
+    //Shows mine odds over hidden cells; null hides them.
+    public void setProbabilityMap(MineProbabilityMap odds) {
+        this.odds = odds;
+        repaint();
+    }
+
+    //Repaints cells in area (x = column, y = row), e.g. after their odds changed.
+    public void repaintCells(Rectangle cells) {
+        repaint(new Rectangle(cells.x * cellSize, cells.y * cellSize, cells.width * cellSize, cells.height * cellSize));
+    }
+
+    //Color for mine chance p; translucent to lay over a tile, or opaque as it looks over a hidden cell.
+    static Color oddsColor(double p, boolean opaque) {
+        int i = (int) Math.round(Math.max(0, Math.min(1, p)) * ODDS_STEPS);
+        return opaque ? ODDS_OPAQUE[i] : ODDS_OVERLAY[i];
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    //Changes zoom level, keeping board point under (anchorX, anchorY) in place within viewport.
+    public void setCellSize(int size, Point anchor) {
+        size = clampCellSize(size);
+        if (size == cellSize) {
+            return;
+        }
+        JViewport viewport = getViewport();
+        Point oldView = viewport != null ? viewport.getViewPosition() : new Point();
+        if (anchor == null) {
+            Rectangle visible = getVisibleRect();
+            anchor = new Point(visible.x + visible.width / 2, visible.y + visible.height / 2);
+        }
+        double scale = (double) size / cellSize;
+        cellSize = size;
+        invalidateBuffer();
+        revalidate();
+        if (viewport != null) {
+            // Let scroll pane pick up new preferred size before moving view.
+            viewport.validate();
+            int x = (int) Math.round(anchor.x * scale) - (anchor.x - oldView.x);
+            int y = (int) Math.round(anchor.y * scale) - (anchor.y - oldView.y);
+            Dimension extent = viewport.getExtentSize();
+            Dimension pref = getPreferredSize();
+            x = Math.max(0, Math.min(x, pref.width - extent.width));
+            y = Math.max(0, Math.min(y, pref.height - extent.height));
+            viewport.setViewPosition(new Point(x, y));
+        }
+        repaint();
+    }
+
+    public void zoomIn() {
+        setCellSize(cellSize * 2, null);
+    }
+
+    public void zoomOut() {
+        setCellSize(cellSize / 2, null);
+    }
+
+    //Full refresh: everything may have changed.
+    @Override
+    public void modelChanged() {
+        invalidateBuffer();
+        revalidate();
+        repaint();
+    }
+
+    //Single move: patch the two affected tiles in back buffer, repaint only them and keep player on screen.
+    @Override
+    public void modelChanged(MineFieldEvent event) {
+        renderCell(event.getFromRow(), event.getFromCol());
+        renderCell(event.getToRow(), event.getToCol());
+        repaint(cellBounds(event.getFromRow(), event.getFromCol()));
+        Rectangle to = cellBounds(event.getToRow(), event.getToCol());
+        repaint(to);
+        scrollRectToVisible(to);
+    }
+
+    //Several moves in one frame: patch all their tiles, repaint area they cover once and scroll to last.
+    @Override
+    public void modelChanged(List<MineFieldEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Rectangle dirty = null;
+        for (MineFieldEvent event : events) {
+            renderCell(event.getFromRow(), event.getFromCol());
+            renderCell(event.getToRow(), event.getToCol());
+            dirty = union(dirty, cellBounds(event.getFromRow(), event.getFromCol()));
+            dirty = union(dirty, cellBounds(event.getToRow(), event.getToCol()));
+        }
+        repaint(dirty);
+        MineFieldEvent last = events.get(events.size() - 1);
+        scrollRectToVisible(cellBounds(last.getToRow(), last.getToCol()));
+    }
+
+    private static Rectangle union(Rectangle a, Rectangle b) {
+        return a == null ? b : a.union(b);
+    }
+
+    //Pixel bounds of cell (r, c).
+    public Rectangle cellBounds(int r, int c) {
+        return new Rectangle(c * cellSize, r * cellSize, cellSize, cellSize);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        long w = (long) model.getCols() * cellSize;
+        long h = (long) model.getRows() * cellSize;
+        return new Dimension((int) Math.min(w, Integer.MAX_VALUE), (int) Math.min(h, Integer.MAX_VALUE));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        Rectangle area = cellArea(getVisibleRect().union(clip));
+        if (area.isEmpty()) {
+            return;
+        }
+        // Rebuild back buffer only when visible cells changed, otherwise moves already patched it.
+        if (!area.equals(bufferArea)) {
+            renderBuffer(area);
+        }
+        Rectangle src = clip.intersection(bufferArea);
+        if (!src.isEmpty()) {
+            int sx = src.x - bufferArea.x;
+            int sy = src.y - bufferArea.y;
+            g.drawImage(buffer, src.x, src.y, src.x + src.width, src.y + src.height,
+                    sx, sy, sx + src.width, sy + src.height, null);
+        }
+        if (odds != null) {
+            paintOdds(g, cellArea(clip));
+        }
+    }
+
+    //Tints hidden cells in pixel area by their mine odds. Drawn over back buffer, not into it, so
+    //odds changing away from a move don't touch buffered tiles.
+    private void paintOdds(Graphics g, Rectangle area) {
+        int r0 = area.y / cellSize, r1 = r0 + area.height / cellSize;
+        int c0 = area.x / cellSize, c1 = c0 + area.width / cellSize;
+        for (int r = r0; r < r1; r++) {
+            for (int c = c0; c < c1; c++) {
+                if (!model.isVisited(r, c)) {
+                    g.setColor(oddsColor(odds.getProbability(r, c), false));
+                    g.fillRect(c * cellSize, r * cellSize, cellSize, cellSize);
+                }
+            }
+        }
+    }
+
+    //Pixel area covering every cell that intersects given rectangle, clipped to board.
+    private Rectangle cellArea(Rectangle pixels) {
+        int r0 = Math.max(0, pixels.y / cellSize);
+        int c0 = Math.max(0, pixels.x / cellSize);
+        int r1 = Math.min(model.getRows() - 1, (pixels.y + pixels.height - 1) / cellSize);
+        int c1 = Math.min(model.getCols() - 1, (pixels.x + pixels.width - 1) / cellSize);
+        if (r1 < r0 || c1 < c0) {
+            return new Rectangle();
+        }
+        return new Rectangle(c0 * cellSize, r0 * cellSize, (c1 - c0 + 1) * cellSize, (r1 - r0 + 1) * cellSize);
+    }
+
+    //Blits tile of every cell in area into back buffer, growing it if needed.
+    private void renderBuffer(Rectangle area) {
+        if (buffer == null || buffer.getWidth() < area.width || buffer.getHeight() < area.height) {
+            buffer = TileAtlas.createImage(getGraphicsConfiguration(), area.width, area.height);
+        }
+        bufferArea = area;
+        TileAtlas tiles = atlas();
+        Graphics g = buffer.getGraphics();
+        try {
+            int r0 = area.y / cellSize, r1 = r0 + area.height / cellSize;
+            int c0 = area.x / cellSize, c1 = c0 + area.width / cellSize;
+            for (int r = r0; r < r1; r++) {
+                for (int c = c0; c < c1; c++) {
+                    g.drawImage(tiles.getTile(cellSize, model, r, c),
+                            c * cellSize - area.x, r * cellSize - area.y, null);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    //Redraws one cell into back buffer if it is currently buffered.
+    private void renderCell(int r, int c) {
+        Rectangle cell = cellBounds(r, c);
+        if (buffer == null || !bufferArea.contains(cell)) {
+            return;
+        }
+        Graphics g = buffer.getGraphics();
+        try {
+            g.drawImage(atlas().getTile(cellSize, model, r, c), cell.x - bufferArea.x, cell.y - bufferArea.y, null);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    //Drops back buffer contents, so next paint rebuilds it from model.
+    private void invalidateBuffer() {
+        bufferArea = new Rectangle();
+    }
+
+    private TileAtlas atlas() {
+        if (atlas == null) {
+            Font font = getFont() != null ? getFont() : new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+            atlas = new TileAtlas(font, getGraphicsConfiguration());
+        }
+        return atlas;
+    }
+
+    //Tiles and buffer depend on screen format, so rebuild them when shown on a (new) screen.
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        atlas = null;
+        buffer = null;
+        invalidateBuffer();
+    }
+
+    private void mouseWheelMoved(MouseWheelEvent e) {
+        if ((e.getModifiersEx() & InputEvent.CTRL_DOWN_MASK) != 0) {
+            int size = e.getWheelRotation() < 0 ? cellSize * 2 : cellSize / 2;
+            setCellSize(size, e.getPoint());
+        } else if (getParent() != null) {
+            // Not zooming, so let scroll pane scroll as usual.
+            getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, e, getParent()));
+        }
+    }
+
+    private JViewport getViewport() {
+        Container parent = getParent();
+        return parent instanceof JViewport ? (JViewport) parent : null;
+    }
+
+    private static int clampCellSize(int size) {
+        return Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, size));
+    }
+
+    //Whole board if small, else VIEWPORT_CELLS cells per axis, so a huge board doesn't ask its
+    //surrounding layout for a huge scroll pane.
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        Dimension board = getPreferredSize();
+        int limit = VIEWPORT_CELLS * cellSize;
+        return new Dimension(Math.min(board.width, limit), Math.min(board.height, limit));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return cellSize;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        int extent = orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+        return Math.max(cellSize, extent - cellSize);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
@@ -0,0 +1,123 @@
+package minefield;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+//Command-line entry point that plays the game without Swing/AWT, so it starts fast and runs on
+//headless JVMs. Only touches the engine classes: MineFieldModel, Heading, Command and MoveCommand.
+//
+//Usage: java minefield.MineFieldCli [--rows N] [--cols N] [--load FILE] [--save FILE] [--show] [HEADING...]
+//Headings given as arguments are played in order; without any, headings are read from stdin, one or
+//more per line, until end of input or "quit". "show" prints the board.
+public class MineFieldCli {
+    private static final String USAGE =
+            "Usage: java minefield.MineFieldCli [--rows N] [--cols N] [--load FILE] [--save FILE] [--show] [HEADING...]";
+
+    private final MineFieldModel model;
+    private final PrintStream out;
+
+    public MineFieldCli(MineFieldModel model, PrintStream out) {
+        this.model = model;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int rows = 20;
+        int cols = 20;
+        File load = null;
+        File save = null;
+        boolean show = false;
+        List<String> moves = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rows": rows = Integer.parseInt(CommandLine.value(args, i++, USAGE)); break;
+                case "--cols": cols = Integer.parseInt(CommandLine.value(args, i++, USAGE)); break;
+                case "--load": load = new File(CommandLine.value(args, i++, USAGE)); break;
+                case "--save": save = new File(CommandLine.value(args, i++, USAGE)); break;
+                case "--show": show = true; break;
+                default: moves.add(args[i]);
+            }
+        }
+
+        MineFieldModel model = load != null ? MineFieldModel.load(load) : new MineFieldModel(rows, cols);
+        MineFieldCli cli = new MineFieldCli(model, System.out);
+
+        if (moves.isEmpty()) {
+            cli.play(new BufferedReader(new InputStreamReader(System.in)));
+        } else {
+            for (String move : moves) {
+                cli.command(move);
+            }
+        }
+        if (show) {
+            cli.printBoard();
+        }
+        if (save != null) {
+            model.save(save);
+        }
+    }
+
+    //Reads commands line by line until end of input or "quit".
+    public void play(BufferedReader in) throws IOException {
+        String line;
+        while (!model.isGameOver() && (line = in.readLine()) != null) {
+            for (String token : line.trim().split("\\s+")) {
+                if (token.isEmpty()) {
+                    continue;
+                }
+                if (token.equalsIgnoreCase("quit")) {
+                    return;
+                }
+                command(token);
+            }
+        }
+    }
+
+    //Runs single command: a heading such as "NE", or "show".
+    public void command(String token) {
+        if (token.equalsIgnoreCase("show")) {
+            printBoard();
+            return;
+        }
+        Heading heading;
+        try {
+            heading = Heading.valueOf(token.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            out.println("Unknown command: " + token);
+            return;
+        }
+        MoveOutcome outcome = new MoveCommand(heading).apply(model);
+        if (outcome.getMessage() != null) {
+            out.println(outcome.getMessage());
+        }
+        out.println(heading + " -> (" + model.getPlayerRow() + "," + model.getPlayerCol() + ") mines near: "
+                + model.getNeighborMineCount(model.getPlayerRow(), model.getPlayerCol()));
+    }
+
+    //Prints board: '@' player, digit for visited cells, '?' for unvisited, '*' for mines once game is over.
+    public void printBoard() {
+        StringBuilder sb = new StringBuilder(model.getCols() + 1);
+        for (int r = 0; r < model.getRows(); r++) {
+            sb.setLength(0);
+            for (int c = 0; c < model.getCols(); c++) {
+                if (r == model.getPlayerRow() && c == model.getPlayerCol()) {
+                    sb.append('@');
+                } else if (model.isGameOver() && model.isMined(r, c)) {
+                    sb.append('*');
+                } else if (model.isVisited(r, c)) {
+                    sb.append((char) ('0' + model.getNeighborMineCount(r, c)));
+                } else {
+                    sb.append('?');
+                }
+            }
+            out.println(sb);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package minefield;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Client for MineFieldServer, and load harness that plays many games against it at once.
+//
+//Usage: java minefield.MineFieldClient [--host H] [--port P] [--embedded] [--clients N] [--moves N]
+//       [--pause-ms N] [--seed N]
+//Each client opens a connection, starts a game, and sends random moves, starting a new game whenever
+//one ends. --embedded runs a server in same JVM on a free port, with short park time so parking
+//is exercised too. Prints moves per second, outcome totals and sessions parked at end.
+public class MineFieldClient implements Closeable {
+    private static final String USAGE = "Usage: java minefield.MineFieldClient [--host H] [--port P] [--embedded]"
+            + " [--clients N] [--moves N] [--pause-ms N] [--seed N]";
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+    private final String greeting;
+
+    public MineFieldClient(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        this.greeting = in.readLine();
+        if (greeting == null || !greeting.startsWith("READY")) {
+            socket.close();
+            throw new IOException("Unexpected greeting: " + greeting);
+        }
+    }
+
+    //Server's greeting line, "READY session-id".
+    public String getGreeting() {
+        return greeting;
+    }
+
+    //Sends one command and returns server's reply line.
+    public String send(String command) throws IOException {
+        out.write(command);
+        out.write('\n');
+        out.flush();
+        String reply = in.readLine();
+        if (reply == null) {
+            throw new IOException("Server closed connection");
+        }
+        return reply;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = InetAddress.getLoopbackAddress().getHostAddress();
+        int port = MineFieldServer.DEFAULT_PORT;
+        boolean embedded = false;
+        int clients = 100;
+        int moves = 1000;
+        long pauseMillis = 0;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host": host = CommandLine.value(args, i++, USAGE); break;
+                case "--port": port = Integer.parseInt(CommandLine.value(args, i++, USAGE)); break;
+                case "--embedded": embedded = true; break;
+                case "--clients": clients = Integer.parseInt(CommandLine.value(args, i++, USAGE)); break;
+                case "--moves": moves = Integer.parseInt(CommandLine.value(args, i++, USAGE)); break;
+                case "--pause-ms": pauseMillis = Long.parseLong(CommandLine.value(args, i++, USAGE)); break;
+                case "--seed": seed = Long.parseLong(CommandLine.value(args, i++, USAGE)); break;
+                default: CommandLine.fail("Unknown option " + args[i], USAGE);
+            }
+        }
+
+        MineFieldServer server = null;
+        if (embedded) {
+            server = new MineFieldServer(0, 200, MineFieldServer.DEFAULT_CLOSE_AFTER_MILLIS);
+            server.start();
+            port = server.getPort();
+        }
+
+        String targetHost = host;
+        int targetPort = port;
+        int movesPerClient = moves;
+        long pause = pauseMillis;
+        long baseSeed = seed;
+        AtomicLong total = new AtomicLong();
+        long[] outcomes = new long[MoveOutcome.values().length];
+
+        ExecutorService pool = MineFieldServer.newSessionExecutor();
+        List<Future<long[]>> results = new ArrayList<>();
+        List<MineFieldClient> connections = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            results.add(pool.submit(() -> {
+                MineFieldClient conn = new MineFieldClient(targetHost, targetPort);
+                synchronized (connections) {
+                    connections.add(conn);
+                }
+                return play(conn, movesPerClient, pause, new SplittableRandom(baseSeed + client), total);
+            }));
+        }
+        for (Future<long[]> f : results) {
+            long[] counts = f.get();
+            for (int i = 0; i < counts.length; i++) {
+                outcomes[i] += counts[i];
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d clients, %d moves in %.2f s: %.0f moves/s%n",
+                clients, total.get(), seconds, total.get() / seconds);
+        for (MoveOutcome o : MoveOutcome.values()) {
+            System.out.println("  " + o + ": " + outcomes[o.ordinal()]);
+        }
+        if (server != null) {
+            // Leave connections idle long enough to be parked, then check they still answer.
+            Thread.sleep(600);
+            System.out.println("Sessions: " + server.getSessionCount() + ", parked: " + server.getParkedCount());
+            for (MineFieldClient conn : connections) {
+                if (!conn.send("STATE").startsWith("STATE")) {
+                    throw new IllegalStateException("Parked session did not restore");
+                }
+            }
+            System.out.println("All parked sessions restored.");
+        }
+        for (MineFieldClient conn : connections) {
+            conn.send("QUIT");
+            conn.close();
+        }
+        pool.shutdown();
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    //Plays random moves over connection; returns count of each outcome.
+    private static long[] play(MineFieldClient conn, int moves, long pauseMillis, SplittableRandom random,
+                               AtomicLong total) throws IOException, InterruptedException {
+        long[] counts = new long[MoveOutcome.values().length];
+        Heading[] headings = Heading.values();
+        conn.send("NEW 20 20 5 " + random.nextLong());
+        for (int i = 0; i < moves; i++) {
+            String reply = conn.send(headings[random.nextInt(headings.length)].name());
+            MoveOutcome outcome = MoveOutcome.valueOf(reply.substring(0, reply.indexOf(' ')));
+            counts[outcome.ordinal()]++;
+            total.incrementAndGet();
+            if (outcome == MoveOutcome.MINE || outcome == MoveOutcome.WIN) {
+                conn.send("NEW 20 20 5 " + random.nextLong());
+            }
+            if (pauseMillis > 0) {
+                Thread.sleep(pauseMillis);
+            }
+        }
+        return counts;
+    }
+}
@@ -7,6 +7,9 @@ import java.awt.*;
 //It adds directional buttons to left side, and uses AppPanel's menu for File/Edit operations.
 public class MineFieldController extends AppPanel {
 
+    // Moves player from numpad and arrow keys.
+    protected KeyboardMover keys;
+
     public MineFieldController(AppFactory factory) {
         super(factory);
         layoutView();
@@ -48,11 +51,17 @@ public class MineFieldController extends AppPanel {
         mineFieldView.getAbout().addActionListener(e -> about());
         mineFieldView.getHelpItm().addActionListener(e -> help());
 
+        //Keyboard movement goes through a small queue, so held keys can't build up lag
+        keys = new KeyboardMover(this, new MoveInputQueue(this::move));
+
     }
 
     @Override
     public void setModel(MineFieldModel newModel) {
         model = newModel;
+        if (keys != null) {
+            keys.reset();
+        }
         if (view != null) {
             ((MineFieldView)view).setModel(newModel);
         }
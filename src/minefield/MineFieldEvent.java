@@ -0,0 +1,81 @@
+package minefield;
+
+//Describes single change to model: player moved from one cell to another, possibly revealing the
+//target cell and possibly ending the game. Lets listeners update only the cells that changed.
+//Undo events describe a move taken back: player goes from the move's target back to where it started.
+public class MineFieldEvent {
+    private final Heading heading;
+    private final int fromRow;
+    private final int fromCol;
+    private final int toRow;
+    private final int toCol;
+    private final boolean revealed;
+    private final boolean gameOver;
+    private final boolean won;
+    private final boolean undo;
+
+    public MineFieldEvent(Heading heading, int fromRow, int fromCol, int toRow, int toCol,
+                          boolean revealed, boolean gameOver, boolean won) {
+        this(heading, fromRow, fromCol, toRow, toCol, revealed, gameOver, won, false);
+    }
+
+    public MineFieldEvent(Heading heading, int fromRow, int fromCol, int toRow, int toCol,
+                          boolean revealed, boolean gameOver, boolean won, boolean undo) {
+        this.heading = heading;
+        this.fromRow = fromRow;
+        this.fromCol = fromCol;
+        this.toRow = toRow;
+        this.toCol = toCol;
+        this.revealed = revealed;
+        this.gameOver = gameOver;
+        this.won = won;
+        this.undo = undo;
+    }
+
+    //Direction player moved in; for undo events, direction of move being taken back.
+    public Heading getHeading() {
+        return heading;
+    }
+
+    public int getFromRow() {
+        return fromRow;
+    }
+
+    public int getFromCol() {
+        return fromCol;
+    }
+
+    public int getToRow() {
+        return toRow;
+    }
+
+    public int getToCol() {
+        return toCol;
+    }
+
+    //True if target cell was not visited before this move; for undo events, true if cell left is hidden again.
+    public boolean isRevealed() {
+        return revealed;
+    }
+
+    //True if this move ended the game; for undo events, true if game was reopened.
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    //True if this move ended the game by reaching the goal.
+    public boolean isWon() {
+        return won;
+    }
+
+    //True if this event takes back an earlier move.
+    public boolean isUndo() {
+        return undo;
+    }
+
+    @Override
+    public String toString() {
+        return "MineFieldEvent[" + (undo ? "undo " : "") + heading + " (" + fromRow + "," + fromCol + ")->(" + toRow + "," + toCol + ")"
+                + (revealed ? " revealed" : "") + (gameOver ? (won ? " won" : " lost") : "") + "]";
+    }
+}
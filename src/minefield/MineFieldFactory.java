@@ -1,13 +1,77 @@
 package minefield;
 
 import java.io.File;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
 //Implements AppFactory for MineField game. Creates model, view, and commands.
+//New boards are generated ahead of time on a background thread and kept in a small pool,
+//so "New" only has to take a ready board instead of generating one on the EDT.
 public class MineFieldFactory implements AppFactory {
+    // Boards kept ready ahead of time.
+    private static final int POOL_SIZE = 2;
+
+    private final int rows;
+    private final int cols;
+    private final MineGenerator generator;
+
+    private final BlockingQueue<MineFieldModel> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+    // Boards being generated right now, counted so pool is never overfilled.
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ExecutorService background = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "minefield-board-pool");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    //Create 20x20 minefield by default, with same number of mines every game and always winnable
+    public MineFieldFactory() {
+        this(20, 20, MineGenerator.standard(MineFieldModel.PERCENT_MINED));
+    }
 
+    public MineFieldFactory(int rows, int cols, MineGenerator generator) {
+        this.rows = rows;
+        this.cols = cols;
+        this.generator = generator;
+    }
+
+    //Takes pre-generated board if one is ready, otherwise builds one now, then tops pool up.
     @Override
     public MineFieldModel makeModel() {
-        // Create 20x20 minefield by default
-        return new MineFieldModel(20, 20);
+        MineFieldModel model = pool.poll();
+        if (model == null) {
+            model = createModel();
+        }
+        refillPool();
+        return model;
+    }
+
+    private MineFieldModel createModel() {
+        return new MineFieldModel(rows, cols, generator);
+    }
+
+    //Schedules background generation until pool plus boards in progress reach POOL_SIZE.
+    private void refillPool() {
+        while (true) {
+            int inFlight = pending.get();
+            if (pool.size() + inFlight >= POOL_SIZE) {
+                return;
+            }
+            if (pending.compareAndSet(inFlight, inFlight + 1)) {
+                background.execute(() -> {
+                    try {
+                        pool.offer(createModel());
+                    } finally {
+                        pending.decrementAndGet();
+                    }
+                });
+            }
+        }
     }
 
     @Override
@@ -25,7 +89,10 @@ public class MineFieldFactory implements AppFactory {
     public String[] getHelp() {
         return new String[] {
                 "Use directional buttons or Edit menu to move.",
-                "Avoid mines. Reach bottom-right to win."
+                "Keyboard: numpad 1-9, or arrow keys (two arrows together for diagonals). Hold a key to keep moving.",
+                "Avoid mines. Reach bottom-right to win.",
+                "Undo (Ctrl+Z) takes back moves, even one that hit a mine; Redo (Ctrl+Y) makes them again.",
+                "Edit > Show Mine Odds colors hidden cells from green (likely clear) to red (likely mined)."
         };
     }
 
@@ -50,19 +117,33 @@ public class MineFieldFactory implements AppFactory {
                 case "moveNW": return new MoveCommand(Heading.NW);
             }
         }
+        switch (type) {
+            case "undo": return new UndoCommand();
+            case "redo": return new RedoCommand();
+        }
         return null; // unknown command
     }
 
-    //Called by AppPanel's openFile() to load model from disk.
+    //Called by AppPanel's openFile() to load model from disk. Moves logged in file's journal after
+    //it was last saved are replayed, so a game cut short by a crash picks up where it stopped.
     public MineFieldModel open(File file) throws Exception {
-        // Use static load method in MineFieldModel
-        return MineFieldModel.load(file);
+        // Binary saves are mapped directly; anything else is read as old text save.
+        MineFieldModel model = MineFieldFile.isBinary(file) ? MineFieldFile.read(file) : MineFieldModel.load(file);
+        if (MoveJournal.replay(model, file) > 0) {
+            model.setDirty(true);
+        }
+        return model;
     }
 
-    //Called by AppPanel's saveFile() to save current model.
+    //Saves current model synchronously. Always writes binary format.
     public void save(MineFieldModel m, File file) throws Exception {
         if (m instanceof MineFieldModel) {
             ((MineFieldModel) m).save(file);
         }
     }
+
+    //Called from AppPanel's background save: writes snapshot via temp file and atomic rename.
+    public void save(MineFieldSnapshot snapshot, File file, IntConsumer progress) throws Exception {
+        MineFieldFile.writeAtomically(snapshot, file, progress);
+    }
 }
@@ -0,0 +1,293 @@
+package minefield;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntConsumer;
+
+//Versioned binary save format for MineFieldModel.
+//Layout (big-endian):
+//  int magic "MFLD", short version, short flags, int rows, int cols, int playerRow, int playerCol,
+//  version 2 adds: int percentMined, int generator options, long seed,
+//  version 3 adds: long model version (number of state changes), used to line up move journals,
+//  then mine layer and visited layer as the raw long words of their BitGrids.
+//Seeded boards (FLAG_SEEDED) omit the mine layer and regenerate it from seed on load.
+//Headers are 24 (v1), 40 (v2) and 48 (v3) bytes, so layers start 8-byte aligned.
+public final class MineFieldFile {
+    public static final int MAGIC = 0x4D464C44; // "MFLD"
+    public static final short VERSION = 3;
+    static final int HEADER_SIZE_V1 = 24;
+    static final int HEADER_SIZE_V2 = 40;
+    static final int HEADER_SIZE = 48;
+
+    // Header flag bits.
+    static final int FLAG_GAME_OVER = 1;
+    static final int FLAG_SEEDED = 2;
+
+    // Layers are mapped and written in chunks so huge boards never need one giant buffer.
+    private static final int MAP_CHUNK = 1 << 27;
+    private static final int WRITE_CHUNK = 1 << 20;
+
+    private MineFieldFile() {
+    }
+
+    //Returns true if file starts with binary format magic; anything else is treated as old text save.
+    public static boolean isBinary(File file) throws IOException {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            byte[] head = in.readNBytes(4);
+            return head.length == 4 && ByteBuffer.wrap(head).getInt() == MAGIC;
+        }
+    }
+
+    //Writes snapshot to file in binary format, overwriting it in place.
+    public static void write(MineFieldSnapshot snapshot, File file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(snapshot, ch, null);
+        }
+    }
+
+    //Writes snapshot so target is never left half-written: contents go to temp file in same
+    //directory, are forced to disk, then temp file is renamed over target in one step, and
+    //directory is forced too so rename itself survives a crash.
+    //Progress, if given, receives percent complete from 0 to 100.
+    public static void writeAtomically(MineFieldSnapshot snapshot, File target, IntConsumer progress) throws IOException {
+        Path path = target.toPath().toAbsolutePath();
+        Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        boolean moved = false;
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                write(snapshot, ch, progress);
+                ch.force(true);
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+            syncDirectory(path.getParent());
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    //Forces directory entries (e.g. a rename just done in it) to disk.
+    static void syncDirectory(Path dir) throws IOException {
+        FileChannel ch;
+        try {
+            ch = FileChannel.open(dir, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Some platforms (Windows) can't open directories; there rename is as durable as it gets.
+            return;
+        }
+        try (ch) {
+            ch.force(true);
+        }
+    }
+
+    //Writes snapshot to channel at its current position, reporting percent done if progress given.
+    public static void write(MineFieldSnapshot snapshot, WritableByteChannel ch, IntConsumer progress) throws IOException {
+        int flags = (snapshot.isGameOver() ? FLAG_GAME_OVER : 0) | (snapshot.isSeeded() ? FLAG_SEEDED : 0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.putShort((short) flags);
+        header.putInt(snapshot.getRows());
+        header.putInt(snapshot.getCols());
+        header.putInt(snapshot.getPlayerRow());
+        header.putInt(snapshot.getPlayerCol());
+        header.putInt(snapshot.getPercentMined());
+        header.putInt(snapshot.getGenerator().options());
+        header.putLong(snapshot.getSeed());
+        header.putLong(snapshot.getVersion());
+        header.flip();
+        writeFully(ch, header);
+
+        // Seeded boards are rebuilt from seed, so only unseeded ones store their mines.
+        long[] visited = snapshot.getVisitedLayer().words();
+        long total = snapshot.isSeeded() ? visited.length : 2L * visited.length;
+        if (!snapshot.isSeeded()) {
+            writeLongs(ch, snapshot.getMineLayer().words(), progress, 0, total);
+        }
+        writeLongs(ch, visited, progress, total - visited.length, total);
+        if (progress != null) {
+            progress.accept(100);
+        }
+    }
+
+    //Reads binary save, mapping file into memory rather than copying it through streams.
+    public static MineFieldModel read(File file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_SIZE_V1) {
+                throw new IOException("Not a minefield save: file too short");
+            }
+            MappedByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(ch.size(), HEADER_SIZE));
+            return decode(header, ch.size(), (position, words) -> readLongs(ch, position, words));
+        }
+    }
+
+    //Encodes snapshot in save format in memory, e.g. to park an idle game compactly.
+    public static byte[] toBytes(MineFieldSnapshot snapshot) {
+        long layer = (long) snapshot.getVisitedLayer().words().length * Long.BYTES;
+        long size = HEADER_SIZE + (snapshot.isSeeded() ? layer : 2 * layer);
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Board too large to encode in memory");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) size);
+        try {
+            write(snapshot, Channels.newChannel(out), null);
+        } catch (IOException e) {
+            // In-memory channel doesn't fail.
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    //Decodes game encoded by toBytes or read from save file.
+    public static MineFieldModel fromBytes(byte[] bytes) throws IOException {
+        if (bytes.length < HEADER_SIZE_V1) {
+            throw new IOException("Not a minefield save: data too short");
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes, 0, Math.min(bytes.length, HEADER_SIZE)).slice();
+        return decode(header, bytes.length, (position, words) ->
+                ByteBuffer.wrap(bytes, (int) position, words.length * Long.BYTES).asLongBuffer().get(words));
+    }
+
+    //Reads layer words starting at byte position of encoded save.
+    private interface LayerSource {
+        void read(long position, long[] words) throws IOException;
+    }
+
+    //Parses header (positioned at start, capacity at most HEADER_SIZE) of save of given total size,
+    //then loads layers from source.
+    private static MineFieldModel decode(ByteBuffer header, long size, LayerSource layers) throws IOException {
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a minefield save: bad magic");
+        }
+        int version = header.getShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported save version " + version);
+        }
+        int flags = header.getShort();
+        int rows = header.getInt();
+        int cols = header.getInt();
+        int playerRow = header.getInt();
+        int playerCol = header.getInt();
+        if (rows <= 0 || cols <= 0 || playerRow < 0 || playerRow >= rows || playerCol < 0 || playerCol >= cols) {
+            throw new IOException("Corrupt save header");
+        }
+
+        long position = HEADER_SIZE_V1;
+        // Settings stored since v2; v1 saves get ones matching their mine layer once it's read.
+        MineGenerator generator = null;
+        boolean seeded = false;
+        long seed = 0;
+        long modelVersion = 0;
+        if (version >= 2) {
+            int headerSize = version >= 3 ? HEADER_SIZE : HEADER_SIZE_V2;
+            if (header.capacity() < headerSize) {
+                throw new IOException("Corrupt save: file truncated");
+            }
+            int percentMined = header.getInt();
+            int options = header.getInt();
+            if (percentMined < 0 || percentMined > 100) {
+                throw new IOException("Corrupt save header");
+            }
+            seed = header.getLong();
+            if (version >= 3) {
+                modelVersion = header.getLong();
+            }
+            position = headerSize;
+            generator = MineGenerator.fromOptions(percentMined, options);
+            seeded = (flags & FLAG_SEEDED) != 0;
+        }
+
+        // Check sizes from header against data before allocating anything they ask for. Both are
+        // positive ints, so cell count fits in a long; word count is kept within BitGrid's limit.
+        long cells = (long) rows * cols;
+        if (cells > (long) Integer.MAX_VALUE * 64) {
+            throw new IOException("Corrupt save: board " + rows + "x" + cols + " too large");
+        }
+        long layerBytes = ((cells + 63) >>> 6) * Long.BYTES;
+        long layerCount = seeded ? 1 : 2;
+        if (size - position < layerCount * layerBytes) {
+            throw new IOException("Corrupt save: file truncated");
+        }
+        BitGrid mines;
+        BitGrid visited;
+        try {
+            mines = new BitGrid(rows, cols);
+            visited = new BitGrid(rows, cols);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt save: " + e.getMessage(), e);
+        }
+        if (seeded) {
+            generator.generate(mines, seed);
+        } else {
+            layers.read(position, mines.words());
+            position += layerBytes;
+        }
+        layers.read(position, visited.words());
+        if (generator == null) {
+            generator = MineGenerator.matching(mines);
+        }
+
+        MineFieldModel model = new MineFieldModel(mines, visited, generator, playerRow, playerCol,
+                (flags & FLAG_GAME_OVER) != 0, modelVersion);
+        if (seeded) {
+            model.setSeed(generator, seed);
+        }
+        return model;
+    }
+
+    //Writes words in chunks; done and total count words across whole file, for progress.
+    private static void writeLongs(WritableByteChannel ch, long[] words, IntConsumer progress, long done, long total)
+            throws IOException {
+        // Small boards need far less than a full chunk, and direct buffers are costly to allocate.
+        ByteBuffer buf = ByteBuffer.allocateDirect((int) Math.min(WRITE_CHUNK, Math.max(1L, words.length) * Long.BYTES));
+        LongBuffer longs = buf.asLongBuffer();
+        for (int off = 0; off < words.length; ) {
+            int n = Math.min(longs.capacity(), words.length - off);
+            longs.clear();
+            longs.put(words, off, n);
+            buf.clear().limit(n * Long.BYTES);
+            writeFully(ch, buf);
+            off += n;
+            if (progress != null) {
+                progress.accept((int) ((done + off) * 100 / Math.max(1, total)));
+            }
+        }
+    }
+
+    private static void readLongs(FileChannel ch, long position, long[] words) throws IOException {
+        for (int off = 0; off < words.length; ) {
+            int n = Math.min(MAP_CHUNK / Long.BYTES, words.length - off);
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, position, (long) n * Long.BYTES);
+            map.asLongBuffer().get(words, off, n);
+            position += (long) n * Long.BYTES;
+            off += n;
+        }
+    }
+
+    private static void writeFully(WritableByteChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+    }
+}
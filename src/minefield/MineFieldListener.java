@@ -1,6 +1,21 @@
 package minefield;
 
+import java.util.List;
+
 public interface MineFieldListener {
     //Called by model whenever model state changes, so views can refresh display.
     void modelChanged();
+
+    //Called by model after single move with details of what changed.
+    //Listeners that don't care about details get full refresh by default.
+    default void modelChanged(MineFieldEvent event) {
+        modelChanged();
+    }
+
+    //Called with several moves at once, oldest first, when notifications are coalesced per frame.
+    default void modelChanged(List<MineFieldEvent> events) {
+        for (MineFieldEvent event : events) {
+            modelChanged(event);
+        }
+    }
 }
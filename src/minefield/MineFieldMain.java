@@ -11,8 +11,11 @@ import javax.swing.*;
 public class MineFieldMain {
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> {
-            //Create the factory
-            MineFieldFactory factory = new MineFieldFactory();
+            //Create the factory, optionally for board size given as "rows cols"
+            MineFieldFactory factory = args.length >= 2
+                    ? new MineFieldFactory(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                            MineGenerator.standard(MineFieldModel.PERCENT_MINED))
+                    : new MineFieldFactory();
 
             //Create the controller
             MineFieldController controller = new MineFieldController(factory);
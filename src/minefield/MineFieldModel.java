@@ -1,30 +1,40 @@
 package minefield;
 
-import javax.swing.*;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.io.File;          
-import java.io.FileWriter;    
 import java.io.BufferedReader;
 import java.io.FileReader;    
 import java.io.IOException;   
-import java.io.PrintWriter;   
 
 //Model class holds state and logic of Mine Field game. Notifies listeners whenever its state changes.
+//Model is changed from one thread at a time (normally EDT); other threads, such as background savers,
+//read it through snapshot(), which never blocks that thread.
 public class MineFieldModel {
     // Percentage of cells will contain mines.
     public static final int PERCENT_MINED = 5;
 
+    // Places mines; kept so board can be regenerated from seed.
+    private MineGenerator generator;
+
+    // Seed mines were generated from, meaningful only if seeded is true.
+    private long seed;
+    private boolean seeded;
+
     // Dimensions of grid 10x10.
     private int rows;
     private int cols;
 
-    // 2D array indicating which cells have mines (true = mine present).
-    private boolean[][] mines;
+    // Bit-packed grid indicating which cells have mines (set = mine present).
+    private BitGrid mines;
+
+    // Bit-packed grid indicating which cells have been visited or revealed.
+    private BitGrid visited;
 
-    // 2D array indicating which cells have been visited or revealed.
-    private boolean[][] visited;
+    // Neighbor mine counts, built once whenever mines are placed or loaded.
+    private NeighborCounts neighborCounts;
 
     // Player's current position in grid.
     private int playerRow;
@@ -39,19 +49,67 @@ public class MineFieldModel {
     //Flag to track unsaved changes in  model
     private boolean dirty; 
 
+    // Bumped on every state change, so savers can tell whether model moved on since a snapshot.
+    private long version;
+
+    // True while visited layer is shared with a snapshot and must be copied before next write.
+    // Volatile because snapshots may be taken on other threads.
+    private volatile boolean visitedShared;
+
+    // Seqlock for snapshots: odd while player state or visited layer is being changed.
+    private volatile long writeSeq;
+
+    // Undo records of recent moves, one byte each.
+    private final MoveHistory history = new MoveHistory();
+
     //Constructor creates minefield with given number of rows and columns.
     public MineFieldModel(int rows, int cols) {
+        this(rows, cols, PERCENT_MINED);
+    }
+
+    //Constructor creates minefield with given size where about percentMined percent of cells are mined.
+    public MineFieldModel(int rows, int cols, int percentMined) {
+        this(rows, cols, new MineGenerator(percentMined));
+    }
+
+    //Constructor creates minefield with given size, placing mines with given generator and random seed.
+    public MineFieldModel(int rows, int cols, MineGenerator generator) {
+        this(rows, cols, generator, ThreadLocalRandom.current().nextLong());
+    }
+
+    //Constructor creates reproducible minefield: same size, generator and seed give same mines.
+    public MineFieldModel(int rows, int cols, MineGenerator generator, long seed) {
         this.rows = rows;
         this.cols = cols;
+        this.generator = generator;
+        this.seed = seed;
+        this.seeded = true;
         this.listeners = new ArrayList<>();
         initGame();
     }
 
+    //Constructor for loaded game: takes layers, generator settings, player state and version as they were saved.
+    MineFieldModel(BitGrid mines, BitGrid visited, MineGenerator generator, int playerRow, int playerCol,
+                   boolean gameOver, long version) {
+        this.rows = mines.getRows();
+        this.cols = mines.getCols();
+        this.generator = generator;
+        this.listeners = new ArrayList<>();
+        this.mines = mines;
+        this.visited = visited;
+        this.neighborCounts = new NeighborCounts(mines);
+        this.playerRow = playerRow;
+        this.playerCol = playerCol;
+        this.gameOver = gameOver;
+        this.version = version;
+        this.dirty = false;
+    }
+
     //Initializes or resets game state.
     private void initGame() {
-        // Create 2D arrays.
-        mines = new boolean[rows][cols];
-        visited = new boolean[rows][cols];
+        // Create bit-packed grids, all cells start cleared.
+        mines = new BitGrid(rows, cols);
+        visited = new BitGrid(rows, cols);
 
         // Mark game as not over yet.
         gameOver = false;
@@ -59,25 +117,16 @@ public class MineFieldModel {
         //When starting fresh game, it's not "dirty" yet
         dirty = false; 
 
-        // Randomly place mines in grid based on PERCENT_MINED.
-        Random rand = new Random();
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                // If random number < PERCENT_MINED, place mine.
-                if (rand.nextInt(100) < PERCENT_MINED) {
-                    mines[r][c] = true;
-                } else {
-                    mines[r][c] = false;
-                }
-                //no cell is visited.
-                visited[r][c] = false;
-            }
-        }
+        // Place mines from seed, so same seed always gives same board.
+        generator.generate(mines, seed);
+
+        // Mines are fixed from here on, so count neighbors once.
+        neighborCounts = new NeighborCounts(mines);
 
         // Start player in top-left corner (0,0).
         playerRow = 0;
         playerCol = 0;
-        visited[playerRow][playerCol] = true;  // Mark starting cell as visited.
+        visited.set(playerRow, playerCol, true);  // Mark starting cell as visited.
 
         // Notify listeners model changed.
         notifyListeners();
@@ -88,6 +137,11 @@ public class MineFieldModel {
         listeners.add(listener);
     }
 
+    //Stops notifying given listener.
+    public void removeListener(MineFieldListener listener) {
+        listeners.remove(listener);
+    }
+
     //Notifies all listeners model state has changed.
     private void notifyListeners() {
         for (MineFieldListener l : listeners) {
@@ -95,82 +149,178 @@ public class MineFieldModel {
         }
     }
 
-    //Moves player in given heading (direction).
+    //Notifies all listeners of single move, so they can update only affected cells.
+    private void notifyMoved(Heading heading, int fromRow, int fromCol, boolean revealed, boolean won) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        MineFieldEvent event = new MineFieldEvent(heading, fromRow, fromCol, playerRow, playerCol,
+                revealed, gameOver, won);
+        for (MineFieldListener l : listeners) {
+            l.modelChanged(event);
+        }
+    }
+
+    //Moves player in given heading (direction), reporting game endings and off-grid moves as exceptions.
     public void move(Heading heading) throws MineFieldException {
+        MoveOutcome outcome = tryMove(heading);
+        if (outcome != MoveOutcome.MOVED) {
+            throw new MineFieldException(outcome.getMessage());
+        }
+    }
+
+    //Moves player in given heading (direction) and returns what happened. Allocates nothing itself,
+    //so simulations can run millions of games without building exceptions.
+    public MoveOutcome tryMove(Heading heading) {
+        return applyMove(heading, true);
+    }
+
+    //Moves player; record is false when redoing, since history already holds the move.
+    private MoveOutcome applyMove(Heading heading, boolean record) {
         // If game over, don't allow moves.
         if (gameOver) {
-            throw new MineFieldException("Game has ended. No more moves allowed.");
+            return MoveOutcome.ALREADY_OVER;
         }
 
-
         // Compute new row and column based on heading.
-        int newRow = playerRow;
-        int newCol = playerCol;
-
-        switch (heading) {
-            case N:
-                newRow -= 1;
-                break;
-            case NE:
-                newRow -= 1;
-                newCol += 1;
-                break;
-            case E:
-                newCol += 1;
-                break;
-            case SE:
-                newRow += 1;
-                newCol += 1;
-                break;
-            case S:
-                newRow += 1;
-                break;
-            case SW:
-                newRow += 1;
-                newCol -= 1;
-                break;
-            case W:
-                newCol -= 1;
-                break;
-            case NW:
-                newRow -= 1;
-                newCol -= 1;
-                break;
-        }
+        int newRow = playerRow + heading.getRowDelta();
+        int newCol = playerCol + heading.getColDelta();
 
         // Check if new position is still within grid boundaries.
         if (newRow < 0 || newRow >= rows || newCol < 0 || newCol >= cols) {
-            throw new MineFieldException("Cannot move off the grid.");
+            return MoveOutcome.BLOCKED;
         }
 
         // Update player's position.
+        int oldRow = playerRow;
+        int oldCol = playerCol;
+        beginWrite();
         playerRow = newRow;
         playerCol = newCol;
 
-        // Mark new position as visited.
-        visited[playerRow][playerCol] = true;
+        version++;
+
+        // Mark new position as visited. Revisits write nothing, so they never copy a shared layer.
+        boolean revealed = !visited.get(playerRow, playerCol);
+        if (revealed) {
+            writableVisited().set(playerRow, playerCol, true);
+        }
 
         // Check if there is mine at new position.
-        if (mines[playerRow][playerCol]) {
+        if (mines.get(playerRow, playerCol)) {
             // Game over: player stepped on mine.
             gameOver = true;
-            notifyListeners();
-            throw new MineFieldException("You stepped on a mine.");
+            endWrite();
+            if (record) {
+                history.record(MoveHistory.pack(heading, revealed, true));
+            }
+            notifyMoved(heading, oldRow, oldCol, revealed, false);
+            return MoveOutcome.MINE;
         }
 
         // Check if player reached bottom-right corner.
         if (playerRow == rows - 1 && playerCol == cols - 1) {
             // Game over: player reached goal.
             gameOver = true;
-            notifyListeners();
-            throw new MineFieldException("You win! You reached the goal.");
+            endWrite();
+            if (record) {
+                history.record(MoveHistory.pack(heading, revealed, true));
+            }
+            notifyMoved(heading, oldRow, oldCol, revealed, true);
+            return MoveOutcome.WIN;
         }
 
         // If none of above conditions triggered, move is valid.
+        endWrite();
 
         //Mark model as "dirty"; new state that hasn't been saved
         dirty = true; 
 
+        if (record) {
+            history.record(MoveHistory.pack(heading, revealed, false));
+        }
+        notifyMoved(heading, oldRow, oldCol, revealed, false);
+        return MoveOutcome.MOVED;
+    }
+
+    //Returns true if there is a move to undo.
+    public boolean canUndo() {
+        return history.canUndo();
+    }
+
+    //Returns true if there is an undone move to redo.
+    public boolean canRedo() {
+        return history.canRedo();
+    }
+
+    //Takes back last move, including a move that ended the game. Returns false if nothing to undo.
+    public boolean undo() {
+        if (!history.canUndo()) {
+            return false;
+        }
+        revert(history.undo());
+        return true;
+    }
+
+    //Makes last undone move again. Returns false if nothing to redo.
+    public boolean redo() {
+        if (!history.canRedo()) {
+            return false;
+        }
+        applyMove(MoveHistory.heading(history.redo()), false);
+        return true;
+    }
+
+    //Undoes move described by record, for journal replay; also steps history back if it holds that move.
+    void undo(byte record) {
+        if (history.canUndo()) {
+            history.undo();
+        }
+        revert(record);
+    }
+
+    //Reverses one move: steps player back, hides cell again if move revealed it, and reopens game
+    //if move ended it.
+    private void revert(byte record) {
+        Heading heading = MoveHistory.heading(record);
+        boolean revealed = MoveHistory.isRevealed(record);
+        boolean endedGame = MoveHistory.isEndedGame(record);
+        int oldRow = playerRow;
+        int oldCol = playerCol;
+        beginWrite();
+        if (revealed) {
+            writableVisited().set(oldRow, oldCol, false);
+        }
+        if (endedGame) {
+            gameOver = false;
+        }
+        playerRow = oldRow - heading.getRowDelta();
+        playerCol = oldCol - heading.getColDelta();
+        version++;
+        endWrite();
+        dirty = true;
+        if (listeners.isEmpty()) {
+            return;
+        }
+        MineFieldEvent event = new MineFieldEvent(heading, oldRow, oldCol, playerRow, playerCol,
+                revealed, endedGame, false, true);
+        for (MineFieldListener l : listeners) {
+            l.modelChanged(event);
+        }
+    }
+
+    //Jumps to earlier or later state of same board, as when seeking in a replay. Takes visited layer
+    //as given, forgets undo history and notifies listeners with full refresh.
+    void restore(BitGrid visited, int playerRow, int playerCol, boolean gameOver) {
+        beginWrite();
+        this.visited = visited;
+        this.visitedShared = false;
+        this.playerRow = playerRow;
+        this.playerCol = playerCol;
+        this.gameOver = gameOver;
+        version++;
+        endWrite();
+        history.clear();
         notifyListeners();
     }
 
@@ -186,12 +336,39 @@ public class MineFieldModel {
 
     // Returns true if given cell is visited, false otherwise.
     public boolean isVisited(int r, int c) {
-        return visited[r][c];
+        return visited.get(r, c);
     }
 
     //Returns true if cell at (r, c) contains mine.
     public boolean isMined(int r, int c) {
-        return mines[r][c];
+        return mines.get(r, c);
+    }
+
+    //Returns percentage of cells mined when game was generated.
+    public int getPercentMined() {
+        return generator.getPercentMined();
+    }
+
+    //Returns generator that placed mines.
+    public MineGenerator getGenerator() {
+        return generator;
+    }
+
+    //Returns true if mines came from known seed, so board can be rebuilt with getSeed().
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    //Returns seed mines were generated from; only meaningful if isSeeded().
+    public long getSeed() {
+        return seed;
+    }
+
+    //Records how loaded mines were generated, so board can be saved as seed again.
+    void setSeed(MineGenerator generator, long seed) {
+        this.generator = generator;
+        this.seed = seed;
+        this.seeded = true;
     }
 
     //Returns player's current row.
@@ -209,25 +386,60 @@ public class MineFieldModel {
         return gameOver;
     }
 
-    //Counts how many neighboring cells around (r, c) have mines.
+    //Returns how many neighboring cells around (r, c) have mines, from precomputed table.
     public int getNeighborMineCount(int r, int c) {
-        int count = 0;
-        // Check all 8 possible neighbors around (r,c).
-        for (int dr = -1; dr <= 1; dr++) {
-            for (int dc = -1; dc <= 1; dc++) {
-                // Skip (0,0) offset because that's cell itself.
-                if (dr == 0 && dc == 0) continue;
-                int rr = r + dr;
-                int cc = c + dc;
-                // Check if rr, cc is within grid.
-                if (rr >= 0 && rr < rows && cc >= 0 && cc < cols) {
-                    if (mines[rr][cc]) {
-                        count++;
-                    }
+        return neighborCounts.get(r, c);
+    }
+
+    //Returns immutable, consistent copy of current state, cheap enough to take before every save.
+    //Visited layer is shared until next move that reveals a cell, which copies it first.
+    //
+    //Unlike other getters, safe to call from any thread while model thread keeps moving: reads are
+    //validated against writeSeq and retried if a change was in progress, so model thread never waits.
+    public MineFieldSnapshot snapshot() {
+        while (true) {
+            long seq = writeSeq;
+            if ((seq & 1) == 0) {
+                // Mark layer shared before reading it; a change that started before this saw the mark
+                // or moved writeSeq on, so it's either copied away or detected below.
+                visitedShared = true;
+                BitGrid v = visited;
+                int r = playerRow;
+                int c = playerCol;
+                boolean over = gameOver;
+                long ver = version;
+                VarHandle.acquireFence();
+                if (writeSeq == seq) {
+                    return new MineFieldSnapshot(mines, v, neighborCounts, r, c, over, generator, seed, seeded, ver);
                 }
             }
+            Thread.onSpinWait();
+        }
+    }
+
+    //Starts change to snapshot state. Model has a single writer, so plain increment is enough.
+    private void beginWrite() {
+        writeSeq = writeSeq + 1;
+        // Keep state writes from becoming visible before writeSeq turns odd.
+        VarHandle.storeStoreFence();
+    }
+
+    private void endWrite() {
+        writeSeq = writeSeq + 1;
+    }
+
+    //Returns version counter, bumped on every state change.
+    public long getVersion() {
+        return version;
+    }
+
+    //Visited layer safe to write: copied first if a snapshot still shares it.
+    private BitGrid writableVisited() {
+        if (visitedShared) {
+            visited = new BitGrid(visited);
+            visitedShared = false;
         }
-        return count;
+        return visited;
     }
 
     //Returns true if model has unsaved changes.
@@ -240,52 +452,38 @@ public class MineFieldModel {
         dirty = d;                  
     }                               
 
-    //Save the model to a text file.
+    //Save the model to a file in binary format, replacing file only once new contents are on disk.
     public void save(File file) throws IOException { 
-        try (PrintWriter pw = new PrintWriter(new FileWriter(file))) { 
-            // Write rows, cols, playerRow, playerCol, gameOver
-            pw.println(rows);     
-            pw.println(cols);     
-            pw.println(playerRow);
-            pw.println(playerCol);
-            pw.println(gameOver); 
-
-            // Save mines grid
-            for (int r = 0; r < rows; r++) {               
-                for (int c = 0; c < cols; c++) {           
-                    pw.print(mines[r][c] ? "1" : "0");     
-                }
-                pw.println();                              
-            }
-
-            // Save visited grid
-            for (int r = 0; r < rows; r++) {               
-                for (int c = 0; c < cols; c++) {           
-                    pw.print(visited[r][c] ? "1" : "0");   
-                }
-                pw.println();                              
-            }
-        }
+        MineFieldFile.writeAtomically(snapshot(), file, null);
         // After successful save, it's no longer dirty
         dirty = false; 
     } 
 
-    //Load MineFieldModel from text file.
+    //Load MineFieldModel from file, detecting binary format and falling back to old text saves.
     public static MineFieldModel load(File file) throws IOException { 
+        if (MineFieldFile.isBinary(file)) {
+            return MineFieldFile.read(file);
+        }
+        return loadText(file);
+    }
+
+    //Load MineFieldModel from old text file: one character per cell for each layer.
+    private static MineFieldModel loadText(File file) throws IOException { 
         try (BufferedReader br = new BufferedReader(new FileReader(file))) { 
             int r = Integer.parseInt(br.readLine()); 
             int c = Integer.parseInt(br.readLine()); 
-            MineFieldModel model = new MineFieldModel(r, c); 
+            BitGrid mines = new BitGrid(r, c);
+            BitGrid visited = new BitGrid(r, c);
 
-            model.playerRow = Integer.parseInt(br.readLine()); 
-            model.playerCol = Integer.parseInt(br.readLine()); 
-            model.gameOver  = Boolean.parseBoolean(br.readLine()); 
+            int playerRow = Integer.parseInt(br.readLine()); 
+            int playerCol = Integer.parseInt(br.readLine()); 
+            boolean gameOver = Boolean.parseBoolean(br.readLine()); 
 
             // Read mines
             for (int rr = 0; rr < r; rr++) {                    
                 String line = br.readLine();                    
                 for (int cc = 0; cc < c; cc++) {                
-                    model.mines[rr][cc] = (line.charAt(cc) == '1'); 
+                    mines.set(rr, cc, line.charAt(cc) == '1'); 
                 }
             }
 
@@ -293,17 +491,12 @@ public class MineFieldModel {
             for (int rr = 0; rr < r; rr++) {                    
                 String line = br.readLine();                    
                 for (int cc = 0; cc < c; cc++) {                
-                    model.visited[rr][cc] = (line.charAt(cc) == '1'); 
+                    visited.set(rr, cc, line.charAt(cc) == '1'); 
                 }
             }
 
-            // After loading, it's not dirty
-            model.dirty = false; 
-
-            // Notify listeners (if any) that loaded new data
-            model.notifyListeners(); 
-
-            return model; 
+            // Neighbor counts are built from loaded mine layer, and model starts clean.
+            return new MineFieldModel(mines, visited, MineGenerator.matching(mines), playerRow, playerCol, gameOver, 0);
         }
     } 
 }
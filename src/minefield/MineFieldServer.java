@@ -0,0 +1,336 @@
+package minefield;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Serves games over TCP with a line protocol, one game per connection, headless like MineFieldCli.
+//Each connection runs on its own thread: a virtual thread where the JVM has them (Java 21+), else
+//a pooled platform thread, so blocking reads cost little per session.
+//
+//Usage: java minefield.MineFieldServer [--port P] [--park-after MILLIS] [--close-after MILLIS]
+//
+//Games idle for parkAfterMillis are parked: model is dropped and kept as its save-format bytes
+//(MineFieldFile.toBytes), a few hundred bytes for seeded 20x20 boards, and is restored on next
+//command. Undo history doesn't survive parking. Connections idle for closeAfterMillis are closed.
+//
+//Protocol, one command per line, one reply line each:
+//  NEW [rows cols [percent [seed]]]  -> OK rows cols row col mines-near
+//  N | NE | E | SE | S | SW | W | NW  -> MOVED|BLOCKED|MINE|WIN|ALREADY_OVER row col mines-near
+//  UNDO | REDO                         -> OK row col mines-near, or NONE
+//  STATE                               -> STATE rows cols row col gameOver version
+//  QUIT                                -> BYE, then server closes connection
+//Server greets with READY session-id; bad commands get ERR message.
+public class MineFieldServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 4790;
+    public static final long DEFAULT_PARK_AFTER_MILLIS = 30_000;
+    public static final long DEFAULT_CLOSE_AFTER_MILLIS = 30 * 60_000;
+    private static final String USAGE =
+            "Usage: java minefield.MineFieldServer [--port P] [--park-after MILLIS] [--close-after MILLIS]";
+    // Largest board one session may create.
+    static final long MAX_CELLS = 1_000_000;
+
+    private final ServerSocket serverSocket;
+    private final long parkAfterMillis;
+    private final long closeAfterMillis;
+    private final ExecutorService sessions = newSessionExecutor();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "minefield-server-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<Long, Session> open = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private volatile boolean closed;
+
+    //Binds server to port on loopback; port 0 picks a free one.
+    public MineFieldServer(int port, long parkAfterMillis, long closeAfterMillis) throws IOException {
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        this.parkAfterMillis = parkAfterMillis;
+        this.closeAfterMillis = closeAfterMillis;
+        long sweep = Math.max(10, Math.min(parkAfterMillis, closeAfterMillis) / 4);
+        sweeper.scheduleWithFixedDelay(this::sweep, sweep, sweep, TimeUnit.MILLISECONDS);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        long parkAfter = DEFAULT_PARK_AFTER_MILLIS;
+        long closeAfter = DEFAULT_CLOSE_AFTER_MILLIS;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(CommandLine.value(args, i++, USAGE)); break;
+                case "--park-after": parkAfter = Long.parseLong(CommandLine.value(args, i++, USAGE)); break;
+                case "--close-after": closeAfter = Long.parseLong(CommandLine.value(args, i++, USAGE)); break;
+                default: CommandLine.fail("Unknown option " + args[i], USAGE);
+            }
+        }
+        MineFieldServer server = new MineFieldServer(port, parkAfter, closeAfter);
+        System.out.println("Mine Field server on port " + server.getPort());
+        server.serve();
+    }
+
+    //Runs one thread per session where virtual threads exist, otherwise a cached pool of daemon threads.
+    static ExecutorService newSessionExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "minefield-session");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    //Number of connected sessions.
+    public int getSessionCount() {
+        return open.size();
+    }
+
+    //Number of connected sessions whose game is parked.
+    public int getParkedCount() {
+        int n = 0;
+        for (Session s : open.values()) {
+            if (s.isParked()) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    //Accepts connections until closed.
+    public void serve() throws IOException {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if (closed) {
+                    return;
+                }
+                throw e;
+            }
+            socket.setTcpNoDelay(true);
+            Session session = new Session(nextId.getAndIncrement(), socket);
+            open.put(session.id, session);
+            sessions.execute(session);
+        }
+    }
+
+    //Starts accepting on background thread, for embedding server in tests and harnesses.
+    public void start() {
+        Thread t = new Thread(() -> {
+            try {
+                serve();
+            } catch (IOException e) {
+                System.out.println("Server stopped: " + e.getMessage());
+            }
+        }, "minefield-server-accept");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        sweeper.shutdownNow();
+        for (Session s : open.values()) {
+            s.disconnect();
+        }
+        sessions.shutdownNow();
+    }
+
+    //Parks games and closes connections that have been idle long enough.
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (Session s : open.values()) {
+            long idle = now - s.lastActive;
+            if (idle >= closeAfterMillis) {
+                s.disconnect();
+            } else if (idle >= parkAfterMillis) {
+                s.park();
+            }
+        }
+    }
+
+    //One connection and its game. Game state is guarded by session's lock, since sweeper parks it.
+    private final class Session implements Runnable {
+        private final long id;
+        private final Socket socket;
+        private volatile long lastActive = System.currentTimeMillis();
+        private MineFieldModel model;
+        private byte[] parked;
+
+        Session(long id, Socket socket) {
+            this.id = id;
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            try (Socket s = socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+                 Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+                reply(out, "READY " + id);
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lastActive = System.currentTimeMillis();
+                    String command = line.trim();
+                    if (command.isEmpty()) {
+                        continue;
+                    }
+                    if (command.equalsIgnoreCase("QUIT")) {
+                        reply(out, "BYE");
+                        break;
+                    }
+                    String response;
+                    try {
+                        response = handle(command.split("\\s+"));
+                    } catch (RuntimeException | IOException e) {
+                        response = "ERR " + describe(e);
+                    }
+                    reply(out, response);
+                }
+            } catch (IOException e) {
+                // Connection dropped or closed by sweeper; nothing to report back.
+            } finally {
+                open.remove(id);
+            }
+        }
+
+        //One-line reason for ERR reply; exceptions without a message are named by type instead.
+        private String describe(Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.toString();
+            return message.replaceAll("\\s+", " ").trim();
+        }
+
+        private void reply(Writer out, String line) throws IOException {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+        }
+
+        private synchronized String handle(String[] args) throws IOException {
+            String verb = args[0].toUpperCase(Locale.ROOT);
+            if (verb.equals("NEW")) {
+                model = newGame(args);
+                parked = null;
+                return "OK " + model.getRows() + " " + model.getCols() + " " + position();
+            }
+            MineFieldModel game = game();
+            switch (verb) {
+                case "UNDO":
+                    return game.undo() ? "OK " + position() : "NONE";
+                case "REDO":
+                    return game.redo() ? "OK " + position() : "NONE";
+                case "STATE":
+                    return "STATE " + game.getRows() + " " + game.getCols() + " " + game.getPlayerRow() + " "
+                            + game.getPlayerCol() + " " + game.isGameOver() + " " + game.getVersion();
+                default:
+                    Heading heading;
+                    try {
+                        heading = Heading.valueOf(verb);
+                    } catch (IllegalArgumentException e) {
+                        return "ERR unknown command " + args[0];
+                    }
+                    // Same move logic as menu and buttons.
+                    MoveOutcome outcome = new MoveCommand(heading).apply(game);
+                    return outcome.name() + " " + position();
+            }
+        }
+
+        private MineFieldModel newGame(String[] args) {
+            // Rows and cols come as a pair; anything partial or extra is refused rather than defaulted.
+            if (args.length == 2 || args.length > 5) {
+                throw new IllegalArgumentException("usage: NEW [rows cols [percent [seed]]]");
+            }
+            int rows = args.length > 1 ? parseInt(args[1]) : 20;
+            int cols = args.length > 2 ? parseInt(args[2]) : 20;
+            int percent = args.length > 3 ? parseInt(args[3]) : MineFieldModel.PERCENT_MINED;
+            if (rows <= 0 || cols <= 0 || (long) rows * cols > MAX_CELLS) {
+                throw new IllegalArgumentException("board must have 1 to " + MAX_CELLS + " cells");
+            }
+            MineGenerator generator = MineGenerator.standard(percent);
+            return args.length > 4
+                    ? new MineFieldModel(rows, cols, generator, parseLong(args[4]))
+                    : new MineFieldModel(rows, cols, generator);
+        }
+
+        private int parseInt(String arg) {
+            try {
+                return Integer.parseInt(arg);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("not a number: " + arg);
+            }
+        }
+
+        private long parseLong(String arg) {
+            try {
+                return Long.parseLong(arg);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("not a number: " + arg);
+            }
+        }
+
+        //Current game, restored from parked bytes if needed.
+        private MineFieldModel game() throws IOException {
+            if (model == null) {
+                if (parked == null) {
+                    throw new IllegalStateException("no game; send NEW first");
+                }
+                model = MineFieldFile.fromBytes(parked);
+                parked = null;
+            }
+            return model;
+        }
+
+        private String position() {
+            int r = model.getPlayerRow();
+            int c = model.getPlayerCol();
+            return r + " " + c + " " + model.getNeighborMineCount(r, c);
+        }
+
+        synchronized boolean isParked() {
+            return parked != null;
+        }
+
+        //Replaces live model with its encoded form.
+        synchronized void park() {
+            if (model != null) {
+                parked = MineFieldFile.toBytes(model.snapshot());
+                model = null;
+            }
+        }
+
+        void disconnect() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+    }
+}
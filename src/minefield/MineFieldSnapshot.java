@@ -0,0 +1,97 @@
+package minefield;
+
+//Immutable, consistent copy of game state at one moment, safe to read from any thread.
+//Mine layer and counts never change after generation, so they are shared with the model.
+//Visited layer is shared copy-on-write: model copies it before its next write, not at snapshot time.
+public class MineFieldSnapshot {
+    private final int rows;
+    private final int cols;
+    private final BitGrid mines;
+    private final BitGrid visited;
+    private final NeighborCounts neighborCounts;
+    private final int playerRow;
+    private final int playerCol;
+    private final boolean gameOver;
+    private final MineGenerator generator;
+    private final long seed;
+    private final boolean seeded;
+    private final long version;
+
+    MineFieldSnapshot(BitGrid mines, BitGrid visited, NeighborCounts neighborCounts, int playerRow, int playerCol,
+                      boolean gameOver, MineGenerator generator, long seed, boolean seeded, long version) {
+        this.rows = mines.getRows();
+        this.cols = mines.getCols();
+        this.mines = mines;
+        this.visited = visited;
+        this.neighborCounts = neighborCounts;
+        this.playerRow = playerRow;
+        this.playerCol = playerCol;
+        this.gameOver = gameOver;
+        this.generator = generator;
+        this.seed = seed;
+        this.seeded = seeded;
+        this.version = version;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public boolean isMined(int r, int c) {
+        return mines.get(r, c);
+    }
+
+    public boolean isVisited(int r, int c) {
+        return visited.get(r, c);
+    }
+
+    public int getNeighborMineCount(int r, int c) {
+        return neighborCounts.get(r, c);
+    }
+
+    public int getPlayerRow() {
+        return playerRow;
+    }
+
+    public int getPlayerCol() {
+        return playerCol;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public MineGenerator getGenerator() {
+        return generator;
+    }
+
+    public int getPercentMined() {
+        return generator.getPercentMined();
+    }
+
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    //Model version this snapshot was taken at; model bumps it on every state change.
+    public long getVersion() {
+        return version;
+    }
+
+    //Layers, for persistence. Callers must not modify them.
+    BitGrid getMineLayer() {
+        return mines;
+    }
+
+    BitGrid getVisitedLayer() {
+        return visited;
+    }
+}
@@ -1,6 +1,8 @@
 package minefield;
 import javax.swing.*;
+import javax.swing.border.Border;
 import java.awt.*;
+import java.util.List;
 
 //Displays minefield grid. Implements MineFieldListener so it can update whenever model changes.
 public class MineFieldView extends JPanel implements MineFieldListener {
@@ -10,11 +12,40 @@ public class MineFieldView extends JPanel implements MineFieldListener {
     // 2D array of labels to visually represent cells.
     private JLabel[][] cells;
     private JPanel buttons;
-    private JPanel grid;
+    private JComponent grid;
+    // Painted board used instead of labels on large boards, null while labels are in use.
+    private MineFieldCanvas canvas;
+    // Batches model notifications so display refreshes at most once per frame.
+    private final FrameCoalescer frames = new FrameCoalescer(new MineFieldListener() {
+        @Override
+        public void modelChanged() {
+            refreshAll();
+        }
+
+        @Override
+        public void modelChanged(List<MineFieldEvent> events) {
+            refreshCells(events);
+        }
+    });
+    // Mine odds shown on hidden cells, or null for none.
+    private MineProbabilityMap odds;
+    // Replay controls shown under direction buttons while a replay is open, otherwise null.
+    private JComponent replayControls;
     private JButton N, NW, NE, S, SW, SE, E, W;
     private JMenuBar menuBar;
     private JMenuItem newItm, save, saveAs, open, quit, about, helpItm, editN, editNW, editNE, editW, editS, editSE, editSW, editE;
     private JMenu help, edit;
+
+    // Borders and count labels are shared by all cells instead of allocated per refresh.
+    private static final Border CELL_BORDER = BorderFactory.createLineBorder(Color.GRAY);
+    private static final Border GOAL_BORDER = BorderFactory.createLineBorder(Color.GREEN, 2);
+    private static final String[] COUNT_TEXT = {"0", "1", "2", "3", "4", "5", "6", "7", "8"};
+
+    // Boards with more cells than this are painted by MineFieldCanvas instead of one JLabel per cell.
+    public static final int MAX_LABEL_CELLS = 100 * 100;
+    // Initial cell size in pixels for painted board.
+    private static final int CANVAS_CELL_SIZE = 16;
+
     //Sets up GUI components for displaying grid.
     public MineFieldView(MineFieldModel model) {
         this.model = model;
@@ -22,19 +53,8 @@ public class MineFieldView extends JPanel implements MineFieldListener {
         // Set grid layout to display rows x cols labels.
         setLayout(new GridLayout(1,2));
 
-        // Create 2D array of labels.
-         grid = new JPanel(new GridLayout(model.getRows(), model.getCols()));
-        cells = new JLabel[model.getRows()][model.getCols()];
-
-        // Initialize each label and add it to panel.
-        for (int r = 0; r < model.getRows(); r++) {
-            for (int c = 0; c < model.getCols(); c++) {
-                JLabel label = new JLabel("?", SwingConstants.CENTER);
-                label.setBorder(BorderFactory.createLineBorder(Color.GRAY));
-                cells[r][c] = label;
-                grid.add(label);
-            }
-        }
+        // Create labels or painted board for cells.
+        grid = createGrid();
 
 
         //button JPanel and add buttons to panel
@@ -141,75 +161,163 @@ public class MineFieldView extends JPanel implements MineFieldListener {
 
     }
 
-    //method called whenever model state changes. Refresh display to show visited cells, neighbor counts.
+    //method called whenever model state changes. Refresh is deferred to next frame, so any number of
+    //changes in between costs one refresh.
     @Override
     public void modelChanged() {
+        frames.modelChanged();
+    }
+
+    //method called after single move; queued with other moves of same frame.
+    @Override
+    public void modelChanged(MineFieldEvent event) {
+        frames.modelChanged(event);
+    }
+
+    //Applies queued changes now instead of at next frame. Must be called on EDT.
+    public void flushChanges() {
+        frames.flush();
+    }
+
+    //Refresh display to show visited cells, neighbor counts.
+    private void refreshAll() {
+        if (odds != null) {
+            odds.takeChangedArea();
+        }
+        if (canvas != null) {
+            canvas.modelChanged();
+            return;
+        }
         // Loop through all cells in grid.
         for (int r = 0; r < model.getRows(); r++) {
             for (int c = 0; c < model.getCols(); c++) {
-
-                // If cell has been visited...
-                if (model.isVisited(r, c)) {
-                    // Check if player's current position.
-                    if (r == model.getPlayerRow() && c == model.getPlayerCol()) {
-                        // Highlight player's position in white (or another color).
-                        cells[r][c].setOpaque(true);
-                        cells[r][c].setBackground(Color.WHITE);
-
-                        // Show how many mines are around player.
-                        int neighborMines = model.getNeighborMineCount(r, c);
-                        cells[r][c].setText(String.valueOf(neighborMines));
-
-                    } else {
-                        // visited path cell, not player's position.
-                        cells[r][c].setOpaque(true);
-                        cells[r][c].setBackground(Color.LIGHT_GRAY);
-
-                        // Show neighbor mine count here as well.
-                        int neighborMines = model.getNeighborMineCount(r, c);
-                        cells[r][c].setText(String.valueOf(neighborMines));
-                    }
-
-                } else {
-                    // If cell not visited, display question mark.
-                    cells[r][c].setOpaque(true);
-                    cells[r][c].setBackground(Color.DARK_GRAY);
-                    cells[r][c].setText("?");
-                }
-                if (r == model.getRows() - 1 && c == model.getCols() - 1) {
-                    cells[r][c].setBorder(BorderFactory.createLineBorder(Color.GREEN, 2));
-                } else {
-                    cells[r][c].setBorder(BorderFactory.createLineBorder(Color.GRAY));
-                }
+                updateCell(r, c);
             }
         }
         // Force panel to repaint itself with new data.
         repaint();
     }
+
+    //Only cells player left and entered can have changed in each move, plus odds of cells around them.
+    private void refreshCells(List<MineFieldEvent> events) {
+        Rectangle area = odds != null ? odds.takeChangedArea() : null;
+        if (canvas != null) {
+            canvas.modelChanged(events);
+            if (area != null) {
+                canvas.repaintCells(area);
+            }
+            return;
+        }
+        for (MineFieldEvent event : events) {
+            updateCell(event.getFromRow(), event.getFromCol());
+            updateCell(event.getToRow(), event.getToCol());
+        }
+        if (area != null) {
+            for (int r = area.y; r < area.y + area.height; r++) {
+                for (int c = area.x; c < area.x + area.width; c++) {
+                    updateCell(r, c);
+                }
+            }
+        }
+    }
+
+    //Refresh one label from model state. Label repaints itself when its text or colors change.
+    private void updateCell(int r, int c) {
+        JLabel cell = cells[r][c];
+        cell.setOpaque(true);
+
+        // If cell has been visited...
+        if (model.isVisited(r, c)) {
+            // Check if player's current position.
+            if (r == model.getPlayerRow() && c == model.getPlayerCol()) {
+                // Highlight player's position in white (or another color).
+                cell.setBackground(Color.WHITE);
+            } else {
+                // visited path cell, not player's position.
+                cell.setBackground(Color.LIGHT_GRAY);
+            }
+            // Show how many mines are around cell.
+            cell.setText(COUNT_TEXT[model.getNeighborMineCount(r, c)]);
+        } else {
+            // If cell not visited, display question mark, tinted by its mine odds if shown.
+            cell.setBackground(odds != null ? MineFieldCanvas.oddsColor(odds.getProbability(r, c), true) : Color.DARK_GRAY);
+            cell.setText("?");
+        }
+        if (r == model.getRows() - 1 && c == model.getCols() - 1) {
+            cell.setBorder(GOAL_BORDER);
+        } else {
+            cell.setBorder(CELL_BORDER);
+        }
+    }
+
+    //Shows replay controls under direction buttons, replacing any shown before; null removes them.
+    public void setReplayControls(JComponent controls) {
+        if (replayControls != null) {
+            buttons.remove(replayControls);
+        }
+        replayControls = controls;
+        if (controls != null) {
+            controls.setBounds(20, 420, 440, 80);
+            buttons.add(controls);
+        }
+        buttons.revalidate();
+        buttons.repaint();
+    }
+
+    //Shows mine odds on hidden cells, replacing any shown before; null hides them. Map must follow
+    //this view's model.
+    public void setProbabilityMap(MineProbabilityMap map) {
+        odds = map;
+        if (canvas != null) {
+            canvas.setProbabilityMap(map);
+        }
+        modelChanged();
+    }
+
     //Allows resetting the view when new model is set.
     public void setModel(MineFieldModel newModel) {
         this.model = newModel;
+        // Odds were for previous model; owner sets new ones if still wanted.
+        odds = null;
 
         newModel.addListener(this);
         remove(grid);
 
         //Reset layout with new model dimensions.
-        grid = new JPanel(new GridLayout(model.getRows(), model.getCols()));
+        grid = createGrid();
+        add(grid, BorderLayout.CENTER);
+        revalidate();
+        repaint();
+        modelChanged();
+    }
+
+    //Builds component showing cells: label grid for small boards, scrollable painted board for large ones.
+    private JComponent createGrid() {
+        if ((long) model.getRows() * model.getCols() > MAX_LABEL_CELLS) {
+            cells = null;
+            canvas = new MineFieldCanvas(model, CANVAS_CELL_SIZE);
+            return new JScrollPane(canvas);
+        }
+        canvas = null;
+        JPanel panel = new JPanel(new GridLayout(model.getRows(), model.getCols()));
         cells = new JLabel[model.getRows()][model.getCols()];
-        //Reinitialize each cell label.
+        // Initialize each label and add it to panel.
         for (int r = 0; r < model.getRows(); r++) {
             for (int c = 0; c < model.getCols(); c++) {
                 JLabel label = new JLabel("?", SwingConstants.CENTER);
-                label.setBorder(BorderFactory.createLineBorder(Color.GRAY));
+                label.setBorder(CELL_BORDER);
                 cells[r][c] = label;
-                grid.add(label);
+                panel.add(label);
             }
         }
-        add(grid, BorderLayout.CENTER);
-        revalidate();
-        repaint();
-        modelChanged();
+        return panel;
+    }
+
+    //Painted board in use, or null if board is small enough for labels.
+    public MineFieldCanvas getCanvas() {
+        return canvas;
     }
+
     public JButton getButtonN() {
         return N;
     }
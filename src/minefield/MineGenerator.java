@@ -0,0 +1,255 @@
+package minefield;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+//Places mines on a board. Output depends only on board size, settings and seed, so a board can be
+//regenerated from its seed instead of being stored in full.
+//
+//PER_CELL placement rolls every cell independently, so mine count varies from game to game.
+//EXACT placement picks exactly round(cells * percentMined / 100) distinct cells with Floyd's sampling
+//algorithm, using the grid itself as the membership set, so it costs O(mines) rather than O(cells).
+//
+//Solvable generators keep start cell, its neighbors and goal cell clear and make sure a mine-free
+//8-connected path joins start and goal, checked with SafePathFinder. Boards without one are
+//regenerated from derived seeds a few times, then repaired by clearing a staircase path.
+//
+//PER_CELL board is cut into row stripes whose bit ranges start on long-word boundaries of the BitGrid.
+//Each stripe draws from its own SplittableRandom derived from seed and stripe number, so stripes can
+//be filled in parallel without sharing words, and result is same whether run in parallel or not.
+public class MineGenerator {
+    // Boards with at least this many cells are generated in parallel.
+    static final long PARALLEL_CELLS = 1 << 20;
+    // Aim for stripes of about this many cells.
+    private static final int STRIPE_CELLS = 1 << 16;
+    // Regenerations tried before repairing board by hand.
+    private static final int SOLVABLE_ATTEMPTS = 8;
+
+    //How mines are distributed over the board.
+    public enum Placement {
+        // Each cell mined independently with percentMined chance.
+        PER_CELL,
+        // Exactly percentMined percent of cells mined, chosen uniformly.
+        EXACT
+    }
+
+    // Bits of generator options stored in save files.
+    static final int OPTION_EXACT = 1;
+    static final int OPTION_SOLVABLE = 2;
+
+    private final int percentMined;
+    private final Placement placement;
+    private final boolean solvable;
+
+    public MineGenerator(int percentMined) {
+        this(percentMined, Placement.PER_CELL);
+    }
+
+    public MineGenerator(int percentMined, Placement placement) {
+        this(percentMined, placement, false);
+    }
+
+    public MineGenerator(int percentMined, Placement placement, boolean solvable) {
+        if (percentMined < 0 || percentMined > 100) {
+            throw new IllegalArgumentException("percentMined must be 0..100: " + percentMined);
+        }
+        this.percentMined = percentMined;
+        this.placement = placement;
+        this.solvable = solvable;
+    }
+
+    //Generator with settings the game is played with: exact mine count, always winnable.
+    public static MineGenerator standard(int percentMined) {
+        return new MineGenerator(percentMined, Placement.EXACT, true);
+    }
+
+    //Rebuilds generator from settings stored in save file.
+    static MineGenerator fromOptions(int percentMined, int options) {
+        return new MineGenerator(percentMined,
+                (options & OPTION_EXACT) != 0 ? Placement.EXACT : Placement.PER_CELL,
+                (options & OPTION_SOLVABLE) != 0);
+    }
+
+    //Generator with density of given mine layer, for old saves that didn't record their settings.
+    static MineGenerator matching(BitGrid mines) {
+        return new MineGenerator((int) Math.round(mines.cardinality() * 100.0 / mines.size()));
+    }
+
+    //Settings other than percentMined, packed for save file.
+    int options() {
+        return (placement == Placement.EXACT ? OPTION_EXACT : 0) | (solvable ? OPTION_SOLVABLE : 0);
+    }
+
+    //True if generated boards always have mine-free path from start to goal.
+    public boolean isSolvable() {
+        return solvable;
+    }
+
+    public int getPercentMined() {
+        return percentMined;
+    }
+
+    //Number of mines EXACT placement puts on board with given number of cells.
+    public long getMineCount(long cells) {
+        return (cells * percentMined + 50) / 100;
+    }
+
+    //Clears grid and places mines for given seed.
+    public void generate(BitGrid mines, long seed) {
+        if (!solvable) {
+            place(mines, seed);
+            return;
+        }
+        for (int attempt = 0; attempt < SOLVABLE_ATTEMPTS; attempt++) {
+            // First attempt uses seed itself, later ones derive new seeds from it.
+            place(mines, attempt == 0 ? seed : mix(seed + attempt));
+            clearSafeCells(mines, mix(seed - attempt));
+            if (SafePathFinder.hasSafePath(mines)) {
+                return;
+            }
+        }
+        carvePath(mines);
+    }
+
+    //Keeps start, its neighbors and goal free of mines. EXACT boards get cleared mines moved
+    //to other random cells, so mine count stays fixed.
+    private void clearSafeCells(BitGrid mines, long seed) {
+        int rows = mines.getRows();
+        int cols = mines.getCols();
+        long removed = 0;
+        for (int r = 0; r <= Math.min(1, rows - 1); r++) {
+            for (int c = 0; c <= Math.min(1, cols - 1); c++) {
+                removed += clear(mines, r, c);
+            }
+        }
+        removed += clear(mines, rows - 1, cols - 1);
+        if (placement != Placement.EXACT || removed == 0) {
+            return;
+        }
+        long candidates = mines.size() - mines.cardinality() - safeCellCount(rows, cols);
+        if (candidates < removed) {
+            return;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        while (removed > 0) {
+            long i = random.nextLong(mines.size());
+            int r = (int) (i / cols);
+            int c = (int) (i % cols);
+            if (!mines.get(i) && !isSafeCell(rows, cols, r, c)) {
+                mines.set(i, true);
+                removed--;
+            }
+        }
+    }
+
+    private static int clear(BitGrid mines, int r, int c) {
+        if (mines.get(r, c)) {
+            mines.set(r, c, false);
+            return 1;
+        }
+        return 0;
+    }
+
+    private static boolean isSafeCell(int rows, int cols, int r, int c) {
+        return (r <= 1 && c <= 1) || (r == rows - 1 && c == cols - 1);
+    }
+
+    private static int safeCellCount(int rows, int cols) {
+        int start = Math.min(2, rows) * Math.min(2, cols);
+        return (rows <= 2 && cols <= 2) ? start : start + 1;
+    }
+
+    //Last resort: clear diagonal staircase from start toward goal, then straight along last row or column.
+    //Mines on that path are dropped, so EXACT boards repaired this way end up with fewer mines.
+    private static void carvePath(BitGrid mines) {
+        int r = 0;
+        int c = 0;
+        int lastRow = mines.getRows() - 1;
+        int lastCol = mines.getCols() - 1;
+        mines.set(r, c, false);
+        while (r < lastRow || c < lastCol) {
+            if (r < lastRow) {
+                r++;
+            }
+            if (c < lastCol) {
+                c++;
+            }
+            mines.set(r, c, false);
+        }
+    }
+
+    //Places mines once with configured placement, without any solvability fix-up.
+    private void place(BitGrid mines, long seed) {
+        mines.clear();
+        if (placement == Placement.EXACT) {
+            placeExact(mines, getMineCount(mines.size()), new SplittableRandom(mix(seed)));
+            return;
+        }
+        int rows = mines.getRows();
+        int cols = mines.getCols();
+        int stripeRows = stripeRows(rows, cols);
+        int stripes = (rows + stripeRows - 1) / stripeRows;
+
+        IntStream range = IntStream.range(0, stripes);
+        if (mines.size() >= PARALLEL_CELLS) {
+            range = range.parallel();
+        }
+        range.forEach(s -> {
+            int r0 = s * stripeRows;
+            int r1 = Math.min(rows, r0 + stripeRows);
+            fillStripe(mines, r0, r1, stripeRandom(seed, s));
+        });
+    }
+
+    //Places mines in rows [r0, r1), each cell independently with percentMined chance.
+    private void fillStripe(BitGrid mines, int r0, int r1, SplittableRandom random) {
+        if (percentMined == 0) {
+            return;
+        }
+        long end = mines.index(r1 - 1, mines.getCols() - 1);
+        for (long i = mines.index(r0, 0); i <= end; i++) {
+            if (random.nextInt(100) < percentMined) {
+                mines.set(i, true);
+            }
+        }
+    }
+
+    //Floyd's algorithm: for j in [n-k, n) pick t in [0, j]; take t, or j if t was already taken.
+    //Every k-subset is equally likely and each step does one draw and one bit test.
+    private static void placeExact(BitGrid mines, long k, SplittableRandom random) {
+        long n = mines.size();
+        for (long j = n - k; j < n; j++) {
+            long t = random.nextLong(j + 1);
+            mines.set(mines.get(t) ? j : t, true);
+        }
+    }
+
+    //Random stream for one stripe, independent of how many stripes run at once.
+    static SplittableRandom stripeRandom(long seed, int stripe) {
+        return new SplittableRandom(mix(seed + (stripe + 1) * 0x9E3779B97F4A7C15L));
+    }
+
+    //Rows per stripe: a multiple of rows needed for stripe to cover whole 64-bit words.
+    static int stripeRows(int rows, int cols) {
+        int unit = 64 / gcd(cols, 64);
+        long target = Math.max(1, STRIPE_CELLS / cols);
+        long stripe = (target + unit - 1) / unit * unit;
+        return (int) Math.min(stripe, Math.max(rows, unit));
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    //Stafford variant 13 of 64-bit finalizer: spreads nearby seeds far apart.
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
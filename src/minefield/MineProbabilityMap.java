@@ -0,0 +1,780 @@
+package minefield;
+
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+//Chance that each hidden cell holds a mine, given neighbor counts shown on visited cells.
+//
+//Every hidden cell is assumed mined independently with board's mine percentage (0 for cells a solvable
+//generator always keeps clear), and counts on visited cells are constraints on their hidden neighbors.
+//With independent cells, hidden cells that share no constraint don't affect each other, so the
+//frontier (hidden cells next to a visited one) splits into components that are solved separately,
+//in parallel, and cells away from frontier just keep the prior. EXACT placement fixes total mine count,
+//which the independent prior ignores; on boards of any size the difference is small.
+//
+//A component is solved exactly by weighted counting over its cells in breadth-first order, where state
+//is remaining count of each constraint that has cells on both sides of current position. Path-shaped
+//frontiers stay narrow, so states stay few. A long walk leaves a region full of holes, though, whose
+//frontier is one big two-dimensional component; those are cut into fixed TILE x TILE tiles, each
+//solved exactly within a window reaching MARGIN cells past it, using only constraints lying wholly
+//inside the window. isApproximate tells which cells have such (or, if even a window is too tangled,
+//a cruder) estimate.
+//
+//Kept up to date as a model listener: a move changes constraints only within two cells of cell it
+//revealed or hid, so only small components reaching that area, and tiles whose windows do, are
+//solved again. A move costs about the same on any board, and leaves same result as a
+//full refresh, which solves everything.
+public class MineProbabilityMap implements MineFieldListener {
+    // Components with up to this many cells are solved whole and exactly.
+    private static final int MAX_EXACT_CELLS = 128;
+    // Tile size for big components, and cells each window reaches past its tile.
+    private static final int TILE = 8;
+    private static final int MARGIN = 4;
+    // Most constraints open at once for exact solving; each remaining count takes 4 bits of a long.
+    private static final int MAX_OPEN_CONSTRAINTS = 16;
+    // Most states kept at one position before falling back to estimate.
+    private static final int MAX_STATES = 1 << 14;
+
+    private final MineFieldModel model;
+    private final double prior;
+    private final boolean clearStart;
+    // Probability of each frontier cell, keyed by row * cols + col; others are derived on demand.
+    private final Map<Long, Float> frontier = new HashMap<>();
+    private final Set<Long> approximate = new HashSet<>();
+    // Cells of big components, whose probabilities come from tile windows.
+    private final Set<Long> windowed = new HashSet<>();
+    // Cells whose probability may have changed since last takeChangedArea, as rows y and cols x.
+    private Rectangle changed;
+
+    //Builds map for model's current state and keeps it updated. Call on model's thread.
+    public MineProbabilityMap(MineFieldModel model) {
+        this.model = model;
+        this.prior = model.getPercentMined() / 100.0;
+        this.clearStart = model.getGenerator().isSolvable();
+        model.addListener(this);
+        solveAll();
+    }
+
+    //Stops following model.
+    public void close() {
+        model.removeListener(this);
+    }
+
+    public MineFieldModel getModel() {
+        return model;
+    }
+
+    //Chance (0 to 1) that cell holds a mine: 0 or 1 for visited cells, else as estimated.
+    public double getProbability(int r, int c) {
+        if (model.isVisited(r, c)) {
+            return model.isMined(r, c) ? 1 : 0;
+        }
+        Float p = frontier.get(key(r, c));
+        return p != null ? p : prior(r, c);
+    }
+
+    //True if cell's probability is an estimate rather than exact under the model above.
+    public boolean isApproximate(int r, int c) {
+        return approximate.contains(key(r, c));
+    }
+
+    //Number of hidden cells next to visited ones.
+    public int getFrontierSize() {
+        return frontier.size();
+    }
+
+    //Cells whose probability may have changed since last call (x = column, y = row), or null if none.
+    public Rectangle takeChangedArea() {
+        Rectangle area = changed;
+        changed = null;
+        return area;
+    }
+
+    @Override
+    public void modelChanged() {
+        solveAll();
+    }
+
+    @Override
+    public void modelChanged(MineFieldEvent event) {
+        if (!event.isRevealed()) {
+            // Visited cells unchanged, and so are all constraints.
+            return;
+        }
+        // New move reveals destination; undo hides cell player came back from.
+        int r = event.isUndo() ? event.getFromRow() : event.getToRow();
+        int c = event.isUndo() ? event.getFromCol() : event.getToCol();
+        update(r, c);
+    }
+
+    //Re-solves what constraints around (r, c) touch, after cell was revealed or hidden.
+    private void update(int r, int c) {
+        // Frontier and constraints change only within 2 cells.
+        Rectangle touched = new Rectangle(c - 2, r - 2, 5, 5).intersection(board());
+        List<Long> seeds = new ArrayList<>();
+        for (int rr = touched.y; rr < touched.y + touched.height; rr++) {
+            for (int cc = touched.x; cc < touched.x + touched.width; cc++) {
+                long k = key(rr, cc);
+                frontier.remove(k);
+                approximate.remove(k);
+                windowed.remove(k);
+                if (isFrontier(rr, cc)) {
+                    seeds.add(k);
+                }
+            }
+        }
+        markChanged(touched);
+
+        List<Job> jobs = new ArrayList<>();
+        Set<Long> solvedWhole = new HashSet<>();
+        // Cells of components too big to solve whole, found from seeds; they get windows.
+        Set<Long> big = new HashSet<>();
+        for (long seed : seeds) {
+            if (solvedWhole.contains(seed) || big.contains(seed)) {
+                continue;
+            }
+            long[] component = floodSmall(seed, big);
+            if (component == null) {
+                continue;
+            }
+            for (long k : component) {
+                solvedWhole.add(k);
+            }
+            jobs.add(new Job(component, null));
+        }
+        // Tiles of big components' cells, and tiles within MARGIN of change, whose windows see it even
+        // when their components didn't change.
+        int cols = model.getCols();
+        Set<Long> tiles = new HashSet<>();
+        for (long k : big) {
+            tiles.add(tileOf(k));
+        }
+        for (int tr = Math.max(0, touched.y - MARGIN) / TILE; tr <= (touched.y + touched.height + MARGIN) / TILE; tr++) {
+            for (int tc = Math.max(0, touched.x - MARGIN) / TILE; tc <= (touched.x + touched.width + MARGIN) / TILE; tc++) {
+                tiles.add((long) tr * cols + tc);
+            }
+        }
+        for (long tile : tiles) {
+            Rectangle area = tileArea(tile);
+            if (area.isEmpty()) {
+                continue;
+            }
+            Set<Long> keep = new HashSet<>();
+            for (int rr = area.y; rr < area.y + area.height; rr++) {
+                for (int cc = area.x; cc < area.x + area.width; cc++) {
+                    long k = key(rr, cc);
+                    if (!solvedWhole.contains(k) && (windowed.contains(k) || big.contains(k))) {
+                        keep.add(k);
+                    }
+                }
+            }
+            if (!keep.isEmpty()) {
+                jobs.add(window(area, keep));
+            }
+        }
+        solve(jobs);
+    }
+
+    //Solves every frontier component from scratch.
+    private void solveAll() {
+        frontier.clear();
+        approximate.clear();
+        windowed.clear();
+        int rows = model.getRows();
+        int cols = model.getCols();
+        Set<Long> seen = new HashSet<>();
+        List<Job> jobs = new ArrayList<>();
+        List<Long> big = new ArrayList<>();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                long k = key(r, c);
+                if (seen.contains(k) || !isFrontier(r, c)) {
+                    continue;
+                }
+                long[] component = flood(k, seen);
+                if (component.length <= MAX_EXACT_CELLS) {
+                    jobs.add(new Job(component, null));
+                } else {
+                    for (long cell : component) {
+                        big.add(cell);
+                    }
+                }
+            }
+        }
+        addTiles(big, jobs);
+        markChanged(board());
+        solve(jobs);
+    }
+
+    //Adds a window job for each TILE x TILE tile holding some of cells, keeping results for those cells.
+    private void addTiles(List<Long> cells, List<Job> jobs) {
+        Map<Long, Set<Long>> tiles = new HashMap<>();
+        for (long k : cells) {
+            tiles.computeIfAbsent(tileOf(k), t -> new HashSet<>()).add(k);
+        }
+        for (Map.Entry<Long, Set<Long>> e : tiles.entrySet()) {
+            jobs.add(window(tileArea(e.getKey()), e.getValue()));
+        }
+    }
+
+    private long tileOf(long k) {
+        return (long) (row(k) / TILE) * model.getCols() + col(k) / TILE;
+    }
+
+    private Rectangle tileArea(long tile) {
+        int cols = model.getCols();
+        return new Rectangle((int) (tile % cols) * TILE, (int) (tile / cols) * TILE, TILE, TILE)
+                .intersection(board());
+    }
+
+    //Collects whole component of seed, marking its cells seen. Cells are joined when a constraint covers both.
+    private long[] flood(long seed, Set<Long> seen) {
+        List<Long> cells = new ArrayList<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        seen.add(seed);
+        queue.add(seed);
+        while (!queue.isEmpty()) {
+            long k = queue.poll();
+            cells.add(k);
+            forEachLinked(k, other -> {
+                if (seen.add(other)) {
+                    queue.add(other);
+                }
+            });
+        }
+        return toArray(cells);
+    }
+
+    //Collects component of seed if it has at most MAX_EXACT_CELLS cells. Otherwise, or once it reaches
+    //a cell already in big (so same component), returns null after adding component to big: all of it
+    //but windowed cells' far sides, which were in a big component before and have windows already.
+    //That still reaches every cell of small components just merged into it, so those get windows too.
+    //Each call floods afresh, so a component is never cut short by cells an earlier flood stopped at.
+    private long[] floodSmall(long seed, Set<Long> big) {
+        Set<Long> seen = new HashSet<>();
+        List<Long> cells = new ArrayList<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        seen.add(seed);
+        queue.add(seed);
+        boolean tooBig = false;
+        while (!queue.isEmpty()) {
+            long k = queue.poll();
+            if (big.contains(k) || cells.size() == MAX_EXACT_CELLS) {
+                queue.push(k);
+                tooBig = true;
+                break;
+            }
+            cells.add(k);
+            forEachLinked(k, other -> {
+                if (seen.add(other)) {
+                    queue.add(other);
+                }
+            });
+        }
+        if (!tooBig) {
+            return toArray(cells);
+        }
+        big.addAll(seen);
+        while (!queue.isEmpty()) {
+            long k = queue.poll();
+            if (windowed.contains(k)) {
+                continue;
+            }
+            forEachLinked(k, other -> {
+                if (big.add(other)) {
+                    queue.add(other);
+                }
+            });
+        }
+        return null;
+    }
+
+    private static long[] toArray(List<Long> cells) {
+        long[] out = new long[cells.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = cells.get(i);
+        }
+        return out;
+    }
+
+    //Job solving frontier cells within MARGIN of tile, keeping results for cells in keep.
+    private Job window(Rectangle tile, Set<Long> keep) {
+        Rectangle area = new Rectangle(tile.x - MARGIN, tile.y - MARGIN,
+                tile.width + 2 * MARGIN, tile.height + 2 * MARGIN).intersection(board());
+        List<Long> cells = new ArrayList<>();
+        for (int r = area.y; r < area.y + area.height; r++) {
+            for (int c = area.x; c < area.x + area.width; c++) {
+                if (isFrontier(r, c)) {
+                    cells.add(key(r, c));
+                }
+            }
+        }
+        return new Job(toArray(cells), keep);
+    }
+
+    //Solves jobs in parallel, then stores results on calling thread. Solvers only read model, which
+    //doesn't change meanwhile since calling thread is the model's thread and waits here.
+    private void solve(List<Job> jobs) {
+        List<Solution> solutions = jobs.size() == 1
+                ? List.of(jobs.get(0).solve())
+                : jobs.parallelStream().map(Job::solve).toList();
+        for (Solution s : solutions) {
+            for (int i = 0; i < s.cells.length; i++) {
+                markChanged(new Rectangle(col(s.cells[i]), row(s.cells[i]), 1, 1));
+                frontier.put(s.cells[i], s.probabilities[i]);
+                if (s.approximate) {
+                    approximate.add(s.cells[i]);
+                } else {
+                    approximate.remove(s.cells[i]);
+                }
+                if (s.window) {
+                    windowed.add(s.cells[i]);
+                } else {
+                    windowed.remove(s.cells[i]);
+                }
+            }
+        }
+    }
+
+    private Rectangle board() {
+        return new Rectangle(0, 0, model.getCols(), model.getRows());
+    }
+
+    private void markChanged(Rectangle area) {
+        changed = changed == null ? area : changed.union(area);
+    }
+
+    //Prior chance of mine before any counts are considered.
+    private double prior(int r, int c) {
+        if (clearStart && ((r <= 1 && c <= 1) || (r == model.getRows() - 1 && c == model.getCols() - 1))) {
+            return 0;
+        }
+        return prior;
+    }
+
+    private boolean inBounds(int r, int c) {
+        return r >= 0 && r < model.getRows() && c >= 0 && c < model.getCols();
+    }
+
+    //Hidden cell next to a visited cell that shows a count.
+    private boolean isFrontier(int r, int c) {
+        if (model.isVisited(r, c)) {
+            return false;
+        }
+        for (int rr = r - 1; rr <= r + 1; rr++) {
+            for (int cc = c - 1; cc <= c + 1; cc++) {
+                if (inBounds(rr, cc) && isCounted(rr, cc)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    //Visited cell that shows a count; a visited mine (where player was blown up) shows none.
+    private boolean isCounted(int r, int c) {
+        return model.isVisited(r, c) && !model.isMined(r, c);
+    }
+
+    //Calls action for each hidden cell sharing a constraint with hidden cell k.
+    private void forEachLinked(long k, LongConsumer action) {
+        int r = row(k);
+        int c = col(k);
+        for (int vr = r - 1; vr <= r + 1; vr++) {
+            for (int vc = c - 1; vc <= c + 1; vc++) {
+                if (!inBounds(vr, vc) || !isCounted(vr, vc)) {
+                    continue;
+                }
+                for (int rr = vr - 1; rr <= vr + 1; rr++) {
+                    for (int cc = vc - 1; cc <= vc + 1; cc++) {
+                        if (inBounds(rr, cc) && !model.isVisited(rr, cc) && (rr != r || cc != c)) {
+                            action.accept(key(rr, cc));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private long key(int r, int c) {
+        return (long) r * model.getCols() + c;
+    }
+
+    private int row(long k) {
+        return (int) (k / model.getCols());
+    }
+
+    private int col(long k) {
+        return (int) (k % model.getCols());
+    }
+
+    private static final class Solution {
+        final long[] cells;
+        final float[] probabilities;
+        final boolean approximate;
+        final boolean window;
+
+        Solution(long[] cells, float[] probabilities, boolean approximate, boolean window) {
+            this.cells = cells;
+            this.probabilities = probabilities;
+            this.approximate = approximate;
+            this.window = window;
+        }
+    }
+
+    //Frontier cells solved together with constraints lying wholly among them, cells in solving order.
+    //keep is null for a whole component; for a window, it holds the cells whose results are used.
+    private final class Job {
+        final long[] cells;
+        final Set<Long> keep;
+        // Per constraint: positions of its cells (ascending) and mines among them.
+        final List<int[]> vars = new ArrayList<>();
+        final List<Integer> counts = new ArrayList<>();
+
+        Job(long[] cells, Set<Long> keep) {
+            this.keep = keep;
+            Map<Long, Integer> position = new HashMap<>();
+            this.cells = order(cells);
+            for (int i = 0; i < this.cells.length; i++) {
+                position.put(this.cells[i], i);
+            }
+            // Each counted cell next to these cells gives one constraint.
+            Set<Long> counted = new HashSet<>();
+            for (long k : this.cells) {
+                int r = row(k);
+                int c = col(k);
+                for (int vr = r - 1; vr <= r + 1; vr++) {
+                    for (int vc = c - 1; vc <= c + 1; vc++) {
+                        if (inBounds(vr, vc) && isCounted(vr, vc) && counted.add(key(vr, vc))) {
+                            addConstraint(vr, vc, position);
+                        }
+                    }
+                }
+            }
+        }
+
+        //Adds constraint of counted cell (vr, vc), unless some of its hidden cells are outside job.
+        private void addConstraint(int vr, int vc, Map<Long, Integer> position) {
+            int count = model.getNeighborMineCount(vr, vc);
+            int[] positions = new int[8];
+            int n = 0;
+            for (int rr = vr - 1; rr <= vr + 1; rr++) {
+                for (int cc = vc - 1; cc <= vc + 1; cc++) {
+                    if (!inBounds(rr, cc) || (rr == vr && cc == vc)) {
+                        continue;
+                    }
+                    if (model.isVisited(rr, cc)) {
+                        // Visited mine is a known one.
+                        if (model.isMined(rr, cc)) {
+                            count--;
+                        }
+                    } else {
+                        Integer pos = position.get(key(rr, cc));
+                        if (pos == null) {
+                            return;
+                        }
+                        positions[n++] = pos;
+                    }
+                }
+            }
+            positions = Arrays.copyOf(positions, n);
+            Arrays.sort(positions);
+            vars.add(positions);
+            counts.add(count);
+        }
+
+        //Breadth-first order, starting again from far end of what was reached first, which keeps few
+        //constraints open at a time. Cells of a window needn't all be linked, so each part is ordered.
+        //Parts start from their first cell in row order, so a component gets same order however it was
+        //found; whether it can be solved exactly depends on order, and updates must match a full refresh.
+        private long[] order(long[] cells) {
+            cells = cells.clone();
+            Arrays.sort(cells);
+            Set<Long> members = new HashSet<>();
+            for (long k : cells) {
+                members.add(k);
+            }
+            long[] out = new long[cells.length];
+            long[] probe = new long[cells.length];
+            Set<Long> placed = new HashSet<>();
+            int n = 0;
+            for (long k : cells) {
+                if (placed.contains(k)) {
+                    continue;
+                }
+                // First pass just finds far end of this part.
+                int size = bfs(k, members, new HashSet<>(), probe, 0);
+                n = bfs(probe[size - 1], members, placed, out, n);
+            }
+            return out;
+        }
+
+        //Appends cells linked to start among members and not yet seen to out from index n, breadth first;
+        //returns new end of out.
+        private int bfs(long start, Set<Long> members, Set<Long> seen, long[] out, int n) {
+            int head = n;
+            seen.add(start);
+            out[n++] = start;
+            int[] end = {n};
+            while (head < end[0]) {
+                forEachLinked(out[head++], other -> {
+                    if (members.contains(other) && seen.add(other)) {
+                        out[end[0]++] = other;
+                    }
+                });
+            }
+            return end[0];
+        }
+
+        Solution solve() {
+            float[] p = exact();
+            boolean estimated = p == null;
+            if (estimated) {
+                p = estimate();
+            }
+            if (keep == null) {
+                return new Solution(cells, p, estimated, false);
+            }
+            long[] kept = new long[keep.size()];
+            float[] keptP = new float[keep.size()];
+            int n = 0;
+            for (int i = 0; i < cells.length; i++) {
+                if (keep.contains(cells[i])) {
+                    kept[n] = cells[i];
+                    keptP[n++] = p[i];
+                }
+            }
+            // Windows see only part of their constraints, so they are estimates even when solved exactly.
+            return new Solution(Arrays.copyOf(kept, n), Arrays.copyOf(keptP, n), true, true);
+        }
+
+        //Exact marginals by forward-backward counting, or null if cells are too tangled.
+        private float[] exact() {
+            Steps steps = steps();
+            if (steps == null) {
+                return null;
+            }
+            int n = cells.length;
+            double[] w1 = new double[n];
+            for (int i = 0; i < n; i++) {
+                w1[i] = prior(row(cells[i]), col(cells[i]));
+            }
+
+            // Forward: weight of each state of open constraints after placing cells before position i.
+            List<Map<Long, Double>> forward = new ArrayList<>(n + 1);
+            Map<Long, Double> start = new HashMap<>();
+            start.put(0L, 1.0);
+            forward.add(start);
+            for (int i = 0; i < n; i++) {
+                Map<Long, Double> next = new HashMap<>();
+                double total = 0;
+                for (Map.Entry<Long, Double> e : forward.get(i).entrySet()) {
+                    for (int x = 0; x <= 1; x++) {
+                        double w = x == 1 ? w1[i] : 1 - w1[i];
+                        long t = w == 0 ? -1 : steps.step(i, e.getKey(), x);
+                        if (t >= 0) {
+                            next.merge(t, e.getValue() * w, Double::sum);
+                            total += e.getValue() * w;
+                        }
+                    }
+                }
+                if (next.isEmpty() || next.size() > MAX_STATES) {
+                    // No consistent placement (can't happen on a real board), or too many states.
+                    return null;
+                }
+                // Rescale each position so long components don't underflow.
+                for (Map.Entry<Long, Double> e : next.entrySet()) {
+                    e.setValue(e.getValue() / total);
+                }
+                forward.add(next);
+            }
+
+            // Backward: weight of completing each state; with forward weights gives each cell's marginal.
+            float[] p = new float[n];
+            Map<Long, Double> after = new HashMap<>();
+            after.put(0L, 1.0);
+            for (int i = n - 1; i >= 0; i--) {
+                Map<Long, Double> before = new HashMap<>();
+                double mined = 0;
+                double clear = 0;
+                double total = 0;
+                for (Map.Entry<Long, Double> e : forward.get(i).entrySet()) {
+                    double rest = 0;
+                    for (int x = 0; x <= 1; x++) {
+                        double w = x == 1 ? w1[i] : 1 - w1[i];
+                        long t = w == 0 ? -1 : steps.step(i, e.getKey(), x);
+                        Double b = t >= 0 ? after.get(t) : null;
+                        if (b == null) {
+                            continue;
+                        }
+                        rest += w * b;
+                        if (x == 1) {
+                            mined += e.getValue() * w * b;
+                        } else {
+                            clear += e.getValue() * w * b;
+                        }
+                    }
+                    if (rest > 0) {
+                        before.put(e.getKey(), rest);
+                        total += rest;
+                    }
+                }
+                if (mined + clear == 0) {
+                    return null;
+                }
+                p[i] = (float) (mined / (mined + clear));
+                for (Map.Entry<Long, Double> e : before.entrySet()) {
+                    e.setValue(e.getValue() / total);
+                }
+                after = before;
+            }
+            return p;
+        }
+
+        //Works out which constraints are open at each position, or returns null if too many are.
+        private Steps steps() {
+            int n = cells.length;
+            int m = vars.size();
+            List<List<Integer>> opening = new ArrayList<>();
+            List<List<Integer>> closing = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                opening.add(new ArrayList<>());
+                closing.add(new ArrayList<>());
+            }
+            for (int j = 0; j < m; j++) {
+                int[] v = vars.get(j);
+                if (v.length == 0) {
+                    if (counts.get(j) != 0) {
+                        return null;
+                    }
+                    continue;
+                }
+                opening.get(v[0]).add(j);
+                closing.get(v[v.length - 1]).add(j);
+            }
+            Steps steps = new Steps(n);
+            List<Integer> open = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                List<Integer> before = new ArrayList<>(open);
+                open.addAll(opening.get(i));
+                open.removeAll(closing.get(i));
+                if (open.size() > MAX_OPEN_CONSTRAINTS) {
+                    return null;
+                }
+                steps.source[i] = new int[open.size()];
+                steps.start[i] = new int[open.size()];
+                steps.holds[i] = new boolean[open.size()];
+                steps.room[i] = new int[open.size()];
+                for (int s = 0; s < open.size(); s++) {
+                    int j = open.get(s);
+                    steps.source[i][s] = before.indexOf(j);
+                    steps.start[i][s] = counts.get(j);
+                    steps.holds[i][s] = Arrays.binarySearch(vars.get(j), i) >= 0;
+                    steps.room[i][s] = cellsAfter(j, i);
+                }
+                List<Integer> closed = closing.get(i);
+                steps.closeSource[i] = new int[closed.size()];
+                steps.closeStart[i] = new int[closed.size()];
+                for (int q = 0; q < closed.size(); q++) {
+                    int j = closed.get(q);
+                    steps.closeSource[i][q] = before.indexOf(j);
+                    steps.closeStart[i][q] = counts.get(j);
+                }
+            }
+            return steps;
+        }
+
+        private int cellsAfter(int j, int i) {
+            int[] v = vars.get(j);
+            int k = Arrays.binarySearch(v, i + 1);
+            return v.length - (k >= 0 ? k : -k - 1);
+        }
+
+        //Local estimate for components too wide to solve: each cell averages mine density of constraints
+        //it is in, except that a constraint already met or needing all its cells settles them outright.
+        private float[] estimate() {
+            int n = cells.length;
+            double[] sum = new double[n];
+            int[] seen = new int[n];
+            float[] p = new float[n];
+            Arrays.fill(p, -1);
+            for (int j = 0; j < vars.size(); j++) {
+                int[] v = vars.get(j);
+                int count = counts.get(j);
+                for (int pos : v) {
+                    if (count <= 0) {
+                        p[pos] = 0;
+                    } else if (count >= v.length) {
+                        p[pos] = 1;
+                    }
+                    sum[pos] += (double) count / v.length;
+                    seen[pos]++;
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                if (p[i] < 0) {
+                    p[i] = seen[i] > 0 ? (float) (sum[i] / seen[i]) : (float) prior(row(cells[i]), col(cells[i]));
+                }
+            }
+            return p;
+        }
+    }
+
+    //Transition tables for counting over one component. State before position i packs remaining count of
+    //each constraint open there, 4 bits each, in order of that position's open list.
+    private static final class Steps {
+        // For each constraint open after position i: its slot in state before i, or -1 if it starts at i,
+        // its count if it starts at i, whether it holds cell i, and cells it has after i.
+        final int[][] source;
+        final int[][] start;
+        final boolean[][] holds;
+        final int[][] room;
+        // For each constraint whose last cell is i: its slot in state before i (-1 if it starts at i too)
+        // and its count.
+        final int[][] closeSource;
+        final int[][] closeStart;
+
+        Steps(int n) {
+            source = new int[n][];
+            start = new int[n][];
+            holds = new boolean[n][];
+            room = new int[n][];
+            closeSource = new int[n][];
+            closeStart = new int[n][];
+        }
+
+        //State after placing x mines (0 or 1) at position i, or -1 if that breaks a constraint.
+        long step(int i, long state, int x) {
+            int[] closeFrom = closeSource[i];
+            for (int q = 0; q < closeFrom.length; q++) {
+                int left = closeFrom[q] >= 0 ? slot(state, closeFrom[q]) : closeStart[i][q];
+                // Last cell of constraint must take exactly what it still needs.
+                if (left != x) {
+                    return -1;
+                }
+            }
+            int[] from = source[i];
+            long next = 0;
+            for (int s = 0; s < from.length; s++) {
+                int left = (from[s] >= 0 ? slot(state, from[s]) : start[i][s]) - (holds[i][s] ? x : 0);
+                if (left < 0 || left > room[i][s]) {
+                    return -1;
+                }
+                next |= (long) left << (4 * s);
+            }
+            return next;
+        }
+
+        private static int slot(long state, int s) {
+            return (int) (state >>> (4 * s)) & 0xF;
+        }
+    }
+}
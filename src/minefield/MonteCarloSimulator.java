@@ -0,0 +1,166 @@
+package minefield;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+//Plays many independent games in parallel to measure how hard a board configuration is.
+//Every game gets its own MineFieldModel, so games share nothing and scale across all cores.
+//Boards are generated as in the game (MineGenerator.standard) unless other settings are given.
+//
+//Usage: java minefield.MonteCarloSimulator [--rows N] [--cols N] [--percent P] [--games N]
+//                                         [--placement exact|per-cell] [--solvable yes|no]
+//                                         [--policy random|goal|cautious] [--seed S]
+public class MonteCarloSimulator {
+    private static final String USAGE = "Usage: java minefield.MonteCarloSimulator [--rows N] [--cols N] [--percent P]"
+            + " [--games N] [--placement exact|per-cell] [--solvable yes|no] [--policy random|goal|cautious] [--seed S]";
+
+    private final int rows;
+    private final int cols;
+    private final MineGenerator generator;
+    private final MovePolicy policy;
+    // Games not finished after this many moves count as timed out.
+    private final int maxMoves;
+
+    //Simulates boards generated as in the game, with given mine percentage.
+    public MonteCarloSimulator(int rows, int cols, int percentMined, MovePolicy policy) {
+        this(rows, cols, MineGenerator.standard(percentMined), policy);
+    }
+
+    public MonteCarloSimulator(int rows, int cols, MineGenerator generator, MovePolicy policy) {
+        this.rows = rows;
+        this.cols = cols;
+        this.generator = generator;
+        this.policy = policy;
+        this.maxMoves = (int) Math.min(Integer.MAX_VALUE, 4L * rows * cols);
+    }
+
+    // Outcome codes packed in low two bits of each game's result.
+    private static final int WON = 0;
+    private static final int LOST = 1;
+    private static final int TIMED_OUT = 2;
+
+    //Totals over a batch of games.
+    public static class Result {
+        private long games;
+        private long wins;
+        private long mines;
+        private long timeouts;
+        private long totalMoves;
+        private long elapsedNanos;
+
+        private void add(long packed) {
+            games++;
+            totalMoves += packed >>> 2;
+            switch ((int) (packed & 3)) {
+                case WON:  wins++; break;
+                case LOST: mines++; break;
+                default:   timeouts++;
+            }
+        }
+
+        private void combine(Result other) {
+            games += other.games;
+            wins += other.wins;
+            mines += other.mines;
+            timeouts += other.timeouts;
+            totalMoves += other.totalMoves;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public double getWinRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        public double getMineRate() {
+            return games == 0 ? 0 : (double) mines / games;
+        }
+
+        public double getTimeoutRate() {
+            return games == 0 ? 0 : (double) timeouts / games;
+        }
+
+        //Mean number of moves that changed position, over all games.
+        public double getMeanPathLength() {
+            return games == 0 ? 0 : (double) totalMoves / games;
+        }
+
+        public double getGamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("games=%d win=%.2f%% mine=%.2f%% timeout=%.2f%% meanPath=%.1f throughput=%.0f games/sec",
+                    games, 100 * getWinRate(), 100 * getMineRate(), 100 * getTimeoutRate(),
+                    getMeanPathLength(), getGamesPerSecond());
+        }
+    }
+
+    //Plays given number of games on all cores. Same seed gives same boards and same policy decisions.
+    public Result run(int games, long seed) {
+        long start = System.nanoTime();
+        Result result = IntStream.range(0, games)
+                .parallel()
+                .mapToLong(i -> playGame(new SplittableRandom(seed + i * 0x9E3779B97F4A7C15L)))
+                .collect(Result::new, Result::add, Result::combine);
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    //Plays one game to the end; returns moves made shifted left by 2, or'ed with outcome code.
+    private long playGame(SplittableRandom random) {
+        MineFieldModel model = new MineFieldModel(rows, cols, generator, random.nextLong());
+        long moves = 0;
+        for (int i = 0; i < maxMoves; i++) {
+            MoveOutcome outcome = model.tryMove(policy.next(model, random));
+            if (outcome.hasMoved()) {
+                moves++;
+            }
+            if (outcome == MoveOutcome.WIN) {
+                return moves << 2 | WON;
+            }
+            if (outcome == MoveOutcome.MINE) {
+                return moves << 2 | LOST;
+            }
+        }
+        return moves << 2 | TIMED_OUT;
+    }
+
+    public static void main(String[] args) {
+        int rows = 20;
+        int cols = 20;
+        int percent = MineFieldModel.PERCENT_MINED;
+        int games = 100_000;
+        long seed = System.nanoTime();
+        MovePolicy policy = MovePolicy.CAUTIOUS;
+        MineGenerator.Placement placement = MineGenerator.Placement.EXACT;
+        boolean solvable = true;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rows":    rows = Integer.parseInt(CommandLine.value(args, i++, USAGE)); break;
+                case "--cols":    cols = Integer.parseInt(CommandLine.value(args, i++, USAGE)); break;
+                case "--percent": percent = Integer.parseInt(CommandLine.value(args, i++, USAGE)); break;
+                case "--games":   games = Integer.parseInt(CommandLine.value(args, i++, USAGE)); break;
+                case "--seed":    seed = Long.parseLong(CommandLine.value(args, i++, USAGE)); break;
+                case "--policy":  policy = MovePolicy.named(CommandLine.value(args, i++, USAGE)); break;
+                case "--placement":
+                    placement = MineGenerator.Placement.valueOf(
+                            CommandLine.value(args, i++, USAGE).toUpperCase(Locale.ROOT).replace('-', '_'));
+                    break;
+                case "--solvable": solvable = CommandLine.value(args, i++, USAGE).equalsIgnoreCase("yes"); break;
+                default: CommandLine.fail("Unknown option " + args[i], USAGE);
+            }
+        }
+
+        MineGenerator generator = new MineGenerator(percent, placement, solvable);
+        MonteCarloSimulator sim = new MonteCarloSimulator(rows, cols, generator, policy);
+        System.out.println(rows + "x" + cols + " at " + percent + "% " + placement
+                + (solvable ? " solvable" : "") + " on " + Runtime.getRuntime().availableProcessors() + " cores");
+        System.out.println(sim.run(games, seed));
+    }
+}
@@ -5,20 +5,36 @@ public class MoveCommand extends Command {
 
     private Heading heading;
 
+    // What happened last time this command was executed, null before first run.
+    private MoveOutcome outcome;
+
     public MoveCommand(Heading heading) {
         this.heading = heading;
     }
 
     @Override
     public void execute(MineFieldModel model) {
-        if (model instanceof MineFieldModel) {
-            MineFieldModel mf = (MineFieldModel) model;
-            try {
-                mf.move(heading);
-            } catch (MineFieldException e) {
-                // For a GUI, you might show a dialog or status label.
-                System.out.println(e.getMessage());
-            }
-        }
+        apply(model);
+    }
+
+    //Makes move and returns outcome.
+    public MoveOutcome apply(MineFieldModel model) {
+        outcome = model.tryMove(heading);
+        return outcome;
+    }
+
+    public Heading getHeading() {
+        return heading;
+    }
+
+    //Outcome of last execute, or null if never executed.
+    public MoveOutcome getOutcome() {
+        return outcome;
+    }
+
+    //Why last move didn't simply go ahead, such as hitting a wall, or null.
+    @Override
+    public String getMessage() {
+        return outcome == null ? null : outcome.getMessage();
     }
 }
@@ -0,0 +1,106 @@
+package minefield;
+
+//Fixed-size ring of undo records, one byte per move.
+//A record holds only what a move changed: its heading (previous position is current one stepped
+//back against it), whether target cell was newly visited, and whether move ended the game.
+//Once full, oldest records are overwritten, so 4,096 undo levels cost 4 KB on any board size.
+//
+//Records before cursor can be undone; records after it, up to end, can be redone.
+public class MoveHistory {
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    // Record bits: heading ordinal in bits 0-2, then flags.
+    private static final int HEADING_MASK = 0x7;
+    private static final int REVEALED = 0x8;
+    private static final int ENDED_GAME = 0x10;
+
+    private final byte[] records;
+    // Index of oldest record in ring.
+    private int start;
+    // Records that can be undone, and undone records that can be redone.
+    private int undoCount;
+    private int redoCount;
+
+    public MoveHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoveHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.records = new byte[capacity];
+    }
+
+    //Packs one move into record.
+    public static byte pack(Heading heading, boolean revealed, boolean endedGame) {
+        return (byte) (heading.ordinal() | (revealed ? REVEALED : 0) | (endedGame ? ENDED_GAME : 0));
+    }
+
+    public static Heading heading(byte record) {
+        return Heading.values()[record & HEADING_MASK];
+    }
+
+    //True if move visited its target cell for first time.
+    public static boolean isRevealed(byte record) {
+        return (record & REVEALED) != 0;
+    }
+
+    //True if move stepped on mine or reached goal.
+    public static boolean isEndedGame(byte record) {
+        return (record & ENDED_GAME) != 0;
+    }
+
+    //Records new move. Anything that could have been redone is dropped, and oldest record
+    //is overwritten once ring is full.
+    public void record(byte record) {
+        redoCount = 0;
+        if (undoCount == records.length) {
+            records[start] = record;
+            start = (start + 1) % records.length;
+        } else {
+            records[(start + undoCount) % records.length] = record;
+            undoCount++;
+        }
+    }
+
+    public boolean canUndo() {
+        return undoCount > 0;
+    }
+
+    public boolean canRedo() {
+        return redoCount > 0;
+    }
+
+    //Steps back over newest undoable record and returns it.
+    public byte undo() {
+        if (undoCount == 0) {
+            throw new IllegalStateException("Nothing to undo");
+        }
+        undoCount--;
+        redoCount++;
+        return records[(start + undoCount) % records.length];
+    }
+
+    //Steps forward over next redoable record and returns it.
+    public byte redo() {
+        if (redoCount == 0) {
+            throw new IllegalStateException("Nothing to redo");
+        }
+        byte record = records[(start + undoCount) % records.length];
+        undoCount++;
+        redoCount--;
+        return record;
+    }
+
+    public int capacity() {
+        return records.length;
+    }
+
+    //Forgets all records.
+    public void clear() {
+        start = 0;
+        undoCount = 0;
+        redoCount = 0;
+    }
+}
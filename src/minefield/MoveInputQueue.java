@@ -0,0 +1,102 @@
+package minefield;
+
+import javax.swing.*;
+import java.util.function.Consumer;
+
+//Small bounded queue of movement inputs between keyboard and model, drained on EDT.
+//Keeps input lag from building up when moves take longer than keys arrive:
+//  - when full, oldest input is dropped to make room for newest,
+//  - inputs older than staleMillis when their turn comes are dropped,
+//  - held-key repeats are merged into a queued input of same heading instead of piling up.
+public class MoveInputQueue {
+    public static final int DEFAULT_CAPACITY = 4;
+    public static final int DEFAULT_STALE_MILLIS = 250;
+
+    private final Consumer<Heading> sink;
+    private final long staleNanos;
+    // Ring of queued headings and when each arrived.
+    private final Heading[] headings;
+    private final long[] times;
+    private int head;
+    private int size;
+    private boolean drainScheduled;
+    private int dropped;
+
+    public MoveInputQueue(Consumer<Heading> sink) {
+        this(sink, DEFAULT_CAPACITY, DEFAULT_STALE_MILLIS);
+    }
+
+    public MoveInputQueue(Consumer<Heading> sink, int capacity, int staleMillis) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.sink = sink;
+        this.staleNanos = staleMillis * 1_000_000L;
+        this.headings = new Heading[capacity];
+        this.times = new long[capacity];
+    }
+
+    //Queues deliberate input, such as key press. Must be called on EDT.
+    public void offer(Heading heading) {
+        if (size == headings.length) {
+            // Full: newest input matters more than oldest.
+            head = (head + 1) % headings.length;
+            size--;
+            dropped++;
+        }
+        int tail = (head + size) % headings.length;
+        headings[tail] = heading;
+        times[tail] = System.nanoTime();
+        size++;
+        scheduleDrain();
+    }
+
+    //Queues repeat of held key, unless a move of same heading is still waiting. Must be called on EDT.
+    public void offerRepeat(Heading heading) {
+        if (size > 0 && headings[(head + size - 1) % headings.length] == heading) {
+            times[(head + size - 1) % headings.length] = System.nanoTime();
+            return;
+        }
+        offer(heading);
+    }
+
+    //Drops everything queued, e.g. when game is replaced.
+    public void clear() {
+        size = 0;
+    }
+
+    //Number of inputs dropped so far for being stale or crowded out.
+    public int getDropped() {
+        return dropped;
+    }
+
+    private void scheduleDrain() {
+        if (!drainScheduled) {
+            drainScheduled = true;
+            // Run after pending paint and input events, so moves interleave with screen updates.
+            SwingUtilities.invokeLater(this::drain);
+        }
+    }
+
+    //Applies one fresh input per EDT turn, skipping stale ones, and reschedules while any remain.
+    private void drain() {
+        drainScheduled = false;
+        long now = System.nanoTime();
+        while (size > 0) {
+            Heading heading = headings[head];
+            long time = times[head];
+            headings[head] = null;
+            head = (head + 1) % headings.length;
+            size--;
+            if (now - time > staleNanos) {
+                dropped++;
+                continue;
+            }
+            sink.accept(heading);
+            break;
+        }
+        if (size > 0) {
+            scheduleDrain();
+        }
+    }
+}
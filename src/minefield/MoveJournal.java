@@ -0,0 +1,362 @@
+package minefield;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+//Append-only log of moves next to a full save (the checkpoint), for autosave and crash recovery.
+//Each move is one byte (Heading ordinal), buffered and flushed in batches, so cost per move does
+//not depend on board size. A background timer writes buffered moves and forces them to disk every
+//FLUSH_MILLIS, so game thread never waits on disk and moves made just before going idle aren't
+//left in memory. Every checkpointInterval moves a full checkpoint is written in the background,
+//after which journal is rewritten to hold only moves made since.
+//
+//Journal layout: int magic "MFJL", int reserved, long base version, then one byte per move:
+//a Heading ordinal, or for an undo the move's MoveHistory record with the top bit set.
+//Base version is model version journal starts from. Checkpoint files store their model version too,
+//so on recovery entries already contained in checkpoint are skipped, whichever file was written last.
+public class MoveJournal implements MineFieldListener, Closeable {
+    public static final int MAGIC = 0x4D464A4C; // "MFJL"
+    static final int HEADER_SIZE = 16;
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
+    private static final int UNDO = 0x80;
+    private static final Heading[] HEADINGS = Heading.values();
+
+    private static final int BUFFER_SIZE = 512;
+    // Buffered moves are written and forced to disk this often.
+    private static final long FLUSH_MILLIS = 200;
+
+    // Checkpoints are written one at a time on a shared background thread.
+    private static final ExecutorService CHECKPOINTS = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "minefield-checkpoint");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Flushes every open journal on its timer.
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "minefield-journal");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final MineFieldModel model;
+    private final File checkpoint;
+    private final Path journal;
+    private final int checkpointInterval;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    // Held while checkpoint file is written, so explicit saves and background checkpoints never overlap.
+    private final Object checkpointLock = new Object();
+    // Version of newest checkpoint written through this journal.
+    private long checkpointVersion = -1;
+
+    private FileChannel channel;
+    private long baseVersion;
+    // True if moves were written to channel since it was last forced.
+    private boolean unforced;
+    private ScheduledFuture<?> flushing;
+    private int sinceCheckpoint;
+    private volatile boolean checkpointRunning;
+    private boolean closed;
+    // Told about failures, which happen on game thread or background threads alike.
+    private volatile Consumer<String> errors = System.err::println;
+
+    private MoveJournal(MineFieldModel model, File checkpoint, int checkpointInterval) {
+        this.model = model;
+        this.checkpoint = checkpoint;
+        this.journal = journalFor(checkpoint).toPath();
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    //Journal file that goes with given checkpoint file.
+    public static File journalFor(File checkpoint) {
+        return new File(checkpoint.getPath() + ".journal");
+    }
+
+    //Starts fresh journal for model about to be saved to checkpoint, replacing any old journal.
+    //Journal starts at model's current version and logs every move after it.
+    public static MoveJournal create(MineFieldModel model, File checkpoint, int checkpointInterval) throws IOException {
+        MoveJournal j = new MoveJournal(model, checkpoint, checkpointInterval);
+        j.baseVersion = model.getVersion();
+        writeFresh(j.journal, j.baseVersion, new byte[0]);
+        j.start();
+        return j;
+    }
+
+    //Continues existing journal for model just loaded (and replayed) from checkpoint, or starts fresh one
+    //if there is none or it doesn't line up with model.
+    public static MoveJournal resume(MineFieldModel model, File checkpoint, int checkpointInterval) throws IOException {
+        MoveJournal j = new MoveJournal(model, checkpoint, checkpointInterval);
+        long[] header = readHeader(j.journal);
+        if (header != null && header[0] + header[1] == model.getVersion()) {
+            j.baseVersion = header[0];
+            j.sinceCheckpoint = (int) Math.min(Integer.MAX_VALUE, header[1]);
+        } else {
+            j.baseVersion = model.getVersion();
+            writeFresh(j.journal, j.baseVersion, new byte[0]);
+        }
+        j.start();
+        return j;
+    }
+
+    private void start() throws IOException {
+        openForAppend();
+        model.addListener(this);
+        flushing = FLUSHER.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (IOException e) {
+                errors.accept("Journal write failed: " + e.getMessage());
+            }
+        }, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    //Applies moves from checkpoint's journal to model loaded from that checkpoint. Entries already
+    //in checkpoint are skipped; a journal that doesn't line up with checkpoint is ignored.
+    //Returns number of moves replayed.
+    public static int replay(MineFieldModel model, File checkpoint) throws IOException {
+        Path path = journalFor(checkpoint).toPath();
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC) {
+            return 0;
+        }
+        data.getInt();
+        long base = data.getLong();
+        long skip = model.getVersion() - base;
+        if (skip < 0 || skip > data.remaining()) {
+            return 0;
+        }
+        data.position(data.position() + (int) skip);
+        int replayed = 0;
+        while (data.hasRemaining() && apply(model, data.get())) {
+            replayed++;
+        }
+        return replayed;
+    }
+
+    //Encodes move or undo event as one journal byte. Replays store their move streams the same way.
+    static byte encode(MineFieldEvent event) {
+        return event.isUndo()
+                ? (byte) (UNDO | MoveHistory.pack(event.getHeading(), event.isRevealed(), event.isGameOver()))
+                : (byte) event.getHeading().ordinal();
+    }
+
+    //Applies one encoded move or undo to model. Returns false if code is not valid.
+    static boolean apply(MineFieldModel model, byte code) {
+        int bits = code & 0xFF;
+        if ((bits & UNDO) != 0) {
+            model.undo((byte) (bits & ~UNDO));
+        } else if (bits < HEADINGS.length) {
+            model.tryMove(HEADINGS[bits]);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    public File getCheckpoint() {
+        return checkpoint;
+    }
+
+    //Sets where failures are reported; called on whichever thread failed. Default prints them to stderr.
+    public void setErrorHandler(Consumer<String> handler) {
+        errors = handler;
+    }
+
+    //Full refresh means model was replaced or reset; nothing to log.
+    @Override
+    public void modelChanged() {
+    }
+
+    //Logs move or undo and triggers background checkpoint every checkpointInterval moves.
+    @Override
+    public void modelChanged(MineFieldEvent event) {
+        try {
+            append(encode(event));
+            if (++sinceCheckpoint >= checkpointInterval) {
+                checkpoint();
+            }
+        } catch (IOException e) {
+            errors.accept("Journal write failed: " + e.getMessage());
+        }
+    }
+
+    //Buffers move; a full buffer is handed to OS, but forcing it to disk is left to timer.
+    private synchronized void append(byte code) throws IOException {
+        if (closed) {
+            return;
+        }
+        buffer.put(code);
+        if (!buffer.hasRemaining()) {
+            writeBuffer();
+        }
+    }
+
+    //Writes buffered moves and forces them to disk. Waits on disk, so timer calls it, not game thread.
+    public void flush() throws IOException {
+        FileChannel ch;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            writeBuffer();
+            if (!unforced) {
+                return;
+            }
+            unforced = false;
+            ch = channel;
+        }
+        // Outside lock so moves can still be buffered meanwhile.
+        try {
+            ch.force(false);
+        } catch (ClosedChannelException e) {
+            // Journal was trimmed meanwhile; trimmed copy was forced when written.
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        unforced = true;
+    }
+
+    //Writes full checkpoint in background from snapshot taken now, then trims journal. Must be called
+    //on thread that moves model. Skipped if previous checkpoint is still being written.
+    public void checkpoint() throws IOException {
+        if (checkpointRunning) {
+            return;
+        }
+        MineFieldSnapshot snapshot = model.snapshot();
+        sinceCheckpoint = 0;
+        checkpointRunning = true;
+        CHECKPOINTS.execute(() -> {
+            try {
+                save(snapshot, null);
+            } catch (IOException e) {
+                errors.accept("Checkpoint failed: " + e.getMessage());
+            } finally {
+                checkpointRunning = false;
+            }
+        });
+    }
+
+    //Writes snapshot to checkpoint file via temp file and atomic rename, then trims journal. Used for
+    //explicit saves as well as background checkpoints. A snapshot older than checkpoint already on
+    //disk is not written, so a slow background checkpoint can't undo a newer save.
+    public void save(MineFieldSnapshot snapshot, IntConsumer progress) throws IOException {
+        synchronized (checkpointLock) {
+            if (snapshot.getVersion() < checkpointVersion) {
+                return;
+            }
+            MineFieldFile.writeAtomically(snapshot, checkpoint, progress);
+            checkpointVersion = snapshot.getVersion();
+            checkpointWritten(checkpointVersion);
+        }
+    }
+
+    //Rewrites journal to hold only moves after checkpoint at given version. New journal replaces old
+    //one by atomic rename, so a crash leaves either old or new journal, and both line up with
+    //checkpoint by version.
+    private synchronized void checkpointWritten(long version) throws IOException {
+        if (closed || version < baseVersion) {
+            return;
+        }
+        writeBuffer();
+        long skip = version - baseVersion;
+        long end = channel.size();
+        long from = HEADER_SIZE + skip;
+        ByteBuffer tail = ByteBuffer.allocate((int) Math.max(0, end - from));
+        while (tail.hasRemaining() && channel.read(tail, from + tail.position()) >= 0) {
+            // keep reading until tail is full
+        }
+        channel.close();
+
+        Path tmp = Files.createTempFile(journal.toAbsolutePath().getParent(), journal.getFileName().toString(), ".tmp");
+        writeFresh(tmp, version, tail.array());
+        try {
+            Files.move(tmp, journal, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, journal, StandardCopyOption.REPLACE_EXISTING);
+        }
+        MineFieldFile.syncDirectory(journal.toAbsolutePath().getParent());
+        baseVersion = version;
+        openForAppend();
+    }
+
+    //Stops logging, writes remaining moves and closes file. Journal stays on disk for recovery.
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        model.removeListener(this);
+        flushing.cancel(false);
+        writeBuffer();
+        closed = true;
+        try {
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void openForAppend() throws IOException {
+        // Read access is needed to copy tail when trimming, which rules out APPEND mode.
+        channel = FileChannel.open(journal, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        unforced = false;
+    }
+
+    private static void writeFresh(Path path, long base, byte[] entries) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + entries.length);
+            buf.putInt(MAGIC).putInt(0).putLong(base).put(entries).flip();
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            ch.force(true);
+        }
+    }
+
+    //Returns {base version, entry count} of journal file, or null if missing or not a journal.
+    private static long[] readHeader(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && ch.read(header) >= 0) {
+                // keep reading until header is full
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                return null;
+            }
+            return new long[] {header.getLong(8), ch.size() - HEADER_SIZE};
+        }
+    }
+}
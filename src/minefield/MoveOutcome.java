@@ -0,0 +1,26 @@
+package minefield;
+
+//Result of trying to move player. Normal game endings and wall bumps are values, not exceptions.
+public enum MoveOutcome {
+    MOVED(null),
+    BLOCKED("Cannot move off the grid."),
+    MINE("You stepped on a mine."),
+    WIN("You win! You reached the goal."),
+    ALREADY_OVER("Game has ended. No more moves allowed.");
+
+    private final String message;
+
+    MoveOutcome(String message) {
+        this.message = message;
+    }
+
+    //Message to show user, or null for a plain move.
+    public String getMessage() {
+        return message;
+    }
+
+    //True if player actually changed position.
+    public boolean hasMoved() {
+        return this == MOVED || this == MINE || this == WIN;
+    }
+}
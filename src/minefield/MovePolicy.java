@@ -0,0 +1,60 @@
+package minefield;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+//Strategy that picks next move for automated play. Implementations must be stateless or
+//thread-confined, since simulator calls them from many threads at once.
+public interface MovePolicy {
+    Heading next(MineFieldModel model, SplittableRandom random);
+
+    // Cached copy of Heading.values(), which clones its array on every call.
+    Heading[] ALL_HEADINGS = Heading.values();
+
+    // Headings that bring player closer to bottom-right goal.
+    Heading[] TOWARD_GOAL_HEADINGS = {Heading.SE, Heading.E, Heading.S};
+
+    //Uniformly random heading; off-grid picks just bump the wall.
+    MovePolicy RANDOM = (model, random) -> ALL_HEADINGS[random.nextInt(ALL_HEADINGS.length)];
+
+    //Always steps toward goal: diagonally until in last row or column, then straight.
+    MovePolicy TOWARD_GOAL = (model, random) -> {
+        boolean lastRow = model.getPlayerRow() == model.getRows() - 1;
+        boolean lastCol = model.getPlayerCol() == model.getCols() - 1;
+        return lastRow ? Heading.E : lastCol ? Heading.S : Heading.SE;
+    };
+
+    //Steps toward goal, preferring cells already visited whenever current cell has mines around it.
+    //Falls back to random goal-ward step when no visited cell is available.
+    MovePolicy CAUTIOUS = (model, random) -> {
+        int r = model.getPlayerRow();
+        int c = model.getPlayerCol();
+        int start = random.nextInt(TOWARD_GOAL_HEADINGS.length);
+        Heading fallback = null;
+        for (int i = 0; i < TOWARD_GOAL_HEADINGS.length; i++) {
+            Heading h = TOWARD_GOAL_HEADINGS[(start + i) % TOWARD_GOAL_HEADINGS.length];
+            int rr = r + h.getRowDelta();
+            int cc = c + h.getColDelta();
+            if (rr >= model.getRows() || cc >= model.getCols()) {
+                continue;
+            }
+            if (model.getNeighborMineCount(r, c) == 0 || model.isVisited(rr, cc)) {
+                return h;
+            }
+            if (fallback == null) {
+                fallback = h;
+            }
+        }
+        return fallback != null ? fallback : Heading.SE;
+    };
+
+    //Looks up built-in policy by name: random, goal or cautious.
+    static MovePolicy named(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "random":   return RANDOM;
+            case "goal":     return TOWARD_GOAL;
+            case "cautious": return CAUTIOUS;
+            default: throw new IllegalArgumentException("Unknown policy: " + name);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package minefield;
+
+//Precomputed neighbor mine counts, packed 16 four-bit counts per long in row-major order.
+//Counts never exceed 8, so a nibble per cell is enough.
+public class NeighborCounts {
+    private final int rows;
+    private final int cols;
+    private final long[] nibbles;
+
+    //Builds table from mine layer. Cost is proportional to number of mines, not cells.
+    public NeighborCounts(BitGrid mines) {
+        this.rows = mines.getRows();
+        this.cols = mines.getCols();
+        this.nibbles = new long[(int) ((mines.size() + 15) >>> 4)];
+
+        for (long i = mines.nextSetBit(0); i >= 0; i = mines.nextSetBit(i + 1)) {
+            int r = (int) (i / cols);
+            int c = (int) (i % cols);
+            int r0 = Math.max(r - 1, 0), r1 = Math.min(r + 1, rows - 1);
+            int c0 = Math.max(c - 1, 0), c1 = Math.min(c + 1, cols - 1);
+            for (int rr = r0; rr <= r1; rr++) {
+                for (int cc = c0; cc <= c1; cc++) {
+                    if (rr != r || cc != c) {
+                        increment((long) rr * cols + cc);
+                    }
+                }
+            }
+        }
+    }
+
+    //Returns number of mines around cell (r, c).
+    public int get(int r, int c) {
+        long index = (long) r * cols + c;
+        return (int) (nibbles[(int) (index >>> 4)] >>> ((index & 15) << 2)) & 0xF;
+    }
+
+    private void increment(long index) {
+        // Counts stay <= 8, so adding 1 never carries into next nibble.
+        nibbles[(int) (index >>> 4)] += 1L << ((index & 15) << 2);
+    }
+}
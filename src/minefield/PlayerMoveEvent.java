@@ -0,0 +1,21 @@
+package minefield;
+
+//Move event on a SharedMineFieldModel, telling listeners which player moved.
+public class PlayerMoveEvent extends MineFieldEvent {
+    private final int player;
+
+    public PlayerMoveEvent(int player, Heading heading, int fromRow, int fromCol, int toRow, int toCol,
+                           boolean revealed, boolean gameOver, boolean won) {
+        super(heading, fromRow, fromCol, toRow, toCol, revealed, gameOver, won);
+        this.player = player;
+    }
+
+    public int getPlayer() {
+        return player;
+    }
+
+    @Override
+    public String toString() {
+        return "player " + player + " " + super.toString();
+    }
+}
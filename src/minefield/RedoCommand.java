@@ -0,0 +1,18 @@
+package minefield;
+
+//Command that makes last undone move again.
+public class RedoCommand extends Command {
+
+    // Set when there was nothing to redo.
+    private String message;
+
+    @Override
+    public void execute(MineFieldModel model) {
+        message = model.redo() ? null : "Nothing to redo.";
+    }
+
+    @Override
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,330 @@
+package minefield;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+//Recorded game: starting board plus stream of moves, one journal byte each (see MoveJournal).
+//Every checkpointInterval moves the visited layer is kept Deflate-compressed along with player state,
+//so seeking to any move restores nearest earlier checkpoint and applies at most checkpointInterval
+//moves, instead of replaying whole game from its first move.
+//
+//File layout (big-endian):
+//  int magic "MFRP", short version, short flags, int rows, int cols, int percentMined, int generator options,
+//  long seed, int checkpointInterval, int moveCount, int checkpointCount,
+//  mine layer as compressed block unless FLAG_SEEDED, move bytes,
+//  then per checkpoint: int playerRow, int playerCol, byte gameOver, compressed visited layer.
+//Compressed block is int length followed by Deflate data of layer's long words.
+public class Replay {
+    public static final int MAGIC = 0x4D465250; // "MFRP"
+    public static final short VERSION = 1;
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 256;
+
+    static final int FLAG_SEEDED = 1;
+    // Most that Deflate can shrink data: one 258-byte match per two bits.
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+    //Game state at move number checkpointInterval * i, with visited layer compressed.
+    private static final class Checkpoint {
+        final int playerRow;
+        final int playerCol;
+        final boolean gameOver;
+        final byte[] visited;
+
+        Checkpoint(int playerRow, int playerCol, boolean gameOver, byte[] visited) {
+            this.playerRow = playerRow;
+            this.playerCol = playerCol;
+            this.gameOver = gameOver;
+            this.visited = visited;
+        }
+    }
+
+    private final int rows;
+    private final int cols;
+    private final MineGenerator generator;
+    private final long seed;
+    private final boolean seeded;
+    // Mine layer of unseeded boards; seeded boards regenerate theirs.
+    private final BitGrid mines;
+    private final byte[] moves;
+    private final int moveCount;
+    private final int checkpointInterval;
+    private final List<Checkpoint> checkpoints;
+
+    private Replay(int rows, int cols, MineGenerator generator, long seed, boolean seeded, BitGrid mines,
+                   byte[] moves, int moveCount, int checkpointInterval, List<Checkpoint> checkpoints) {
+        this.rows = rows;
+        this.cols = cols;
+        this.generator = generator;
+        this.seed = seed;
+        this.seeded = seeded;
+        this.mines = mines;
+        this.moves = moves;
+        this.moveCount = moveCount;
+        this.checkpointInterval = checkpointInterval;
+        this.checkpoints = checkpoints;
+    }
+
+    //Builds replay of moves made from start state, computing checkpoints by playing moves on scratch model.
+    public static Replay build(MineFieldSnapshot start, byte[] moves, int moveCount, int checkpointInterval) {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("checkpointInterval must be positive: " + checkpointInterval);
+        }
+        List<Checkpoint> checkpoints = new ArrayList<>();
+        BitGrid visited = new BitGrid(start.getVisitedLayer());
+        checkpoints.add(new Checkpoint(start.getPlayerRow(), start.getPlayerCol(), start.isGameOver(),
+                compress(visited.words())));
+        Replay replay = new Replay(start.getRows(), start.getCols(), start.getGenerator(), start.getSeed(),
+                start.isSeeded(), start.isSeeded() ? null : start.getMineLayer(),
+                moves.length == moveCount ? moves : Arrays.copyOf(moves, moveCount),
+                moveCount, checkpointInterval, checkpoints);
+
+        MineFieldModel model = new MineFieldModel(start.getMineLayer(), visited, start.getGenerator(), start.getPlayerRow(),
+                start.getPlayerCol(), start.isGameOver(), 0);
+        for (int i = 0; i < moveCount; i++) {
+            MoveJournal.apply(model, moves[i]);
+            if ((i + 1) % checkpointInterval == 0) {
+                MineFieldSnapshot s = model.snapshot();
+                checkpoints.add(new Checkpoint(s.getPlayerRow(), s.getPlayerCol(), s.isGameOver(),
+                        compress(s.getVisitedLayer().words())));
+            }
+        }
+        return replay;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    //Creates model showing board as it was before first move.
+    public MineFieldModel createModel() {
+        BitGrid board;
+        if (seeded) {
+            board = new BitGrid(rows, cols);
+            generator.generate(board, seed);
+        } else {
+            board = mines;
+        }
+        Checkpoint start = checkpoints.get(0);
+        MineFieldModel model = new MineFieldModel(board, visitedAt(start), generator, start.playerRow, start.playerCol,
+                start.gameOver, 0);
+        if (seeded) {
+            model.setSeed(generator, seed);
+        }
+        return model;
+    }
+
+    //Brings model from state after move number from to state after move number to. Steps forward
+    //directly when that is at most one checkpoint interval; otherwise restores nearest checkpoint
+    //at or before target first. Returns to.
+    public int seek(MineFieldModel model, int from, int to) {
+        to = Math.max(0, Math.min(moveCount, to));
+        int next = from;
+        if (to < from || to - from > checkpointInterval) {
+            int index = to / checkpointInterval;
+            Checkpoint c = checkpoints.get(index);
+            model.restore(visitedAt(c), c.playerRow, c.playerCol, c.gameOver);
+            next = index * checkpointInterval;
+        }
+        while (next < to) {
+            MoveJournal.apply(model, moves[next++]);
+        }
+        return to;
+    }
+
+    private BitGrid visitedAt(Checkpoint c) {
+        BitGrid visited = new BitGrid(rows, cols);
+        try {
+            decompress(c.visited, visited.words());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return visited;
+    }
+
+    public void write(File file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(seeded ? FLAG_SEEDED : 0);
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeInt(generator.getPercentMined());
+            out.writeInt(generator.options());
+            out.writeLong(seed);
+            out.writeInt(checkpointInterval);
+            out.writeInt(moveCount);
+            out.writeInt(checkpoints.size());
+            if (!seeded) {
+                writeBlock(out, compress(mines.words()));
+            }
+            out.write(moves, 0, moveCount);
+            for (Checkpoint c : checkpoints) {
+                out.writeInt(c.playerRow);
+                out.writeInt(c.playerCol);
+                out.writeByte(c.gameOver ? 1 : 0);
+                writeBlock(out, c.visited);
+            }
+        }
+        Files.write(file.toPath(), bytes.toByteArray());
+    }
+
+    public static Replay read(File file) throws IOException {
+        // Replays are written from one in-memory array, so a bigger file can't be one.
+        long size = Files.size(file.toPath());
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("Corrupt replay: file too large");
+        }
+        // Whole file in memory, so available() tells how much any length read from it can claim.
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a minefield replay: bad magic");
+            }
+            int version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported replay version " + version);
+            }
+            int flags = in.readShort();
+            int rows = in.readInt();
+            int cols = in.readInt();
+            int percentMined = in.readInt();
+            int options = in.readInt();
+            long seed = in.readLong();
+            int interval = in.readInt();
+            int moveCount = in.readInt();
+            int checkpointCount = in.readInt();
+            if (rows <= 0 || cols <= 0 || percentMined < 0 || percentMined > 100 || interval <= 0 || moveCount < 0
+                    || checkpointCount != moveCount / interval + 1) {
+                throw new IOException("Corrupt replay header");
+            }
+            // Same limit as save files, and each layer must also fit the byte array compress() deflates.
+            long cells = (long) rows * cols;
+            long layerBytes = ((cells + 63) >>> 6) * Long.BYTES;
+            if (cells > (long) Integer.MAX_VALUE * 64 || layerBytes > Integer.MAX_VALUE - 8) {
+                throw new IOException("Corrupt replay: board " + rows + "x" + cols + " too large");
+            }
+            boolean seeded = (flags & FLAG_SEEDED) != 0;
+            MineGenerator generator;
+            BitGrid mines = null;
+            try {
+                generator = MineGenerator.fromOptions(percentMined, options);
+                if (!seeded) {
+                    byte[] block = readBlock(in, layerBytes);
+                    mines = new BitGrid(rows, cols);
+                    decompress(block, mines.words());
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt replay: " + e.getMessage(), e);
+            }
+            if (moveCount > in.available()) {
+                throw new IOException("Corrupt replay: file truncated");
+            }
+            byte[] moves = new byte[moveCount];
+            in.readFully(moves);
+            List<Checkpoint> checkpoints = new ArrayList<>(checkpointCount);
+            for (int i = 0; i < checkpointCount; i++) {
+                int playerRow = in.readInt();
+                int playerCol = in.readInt();
+                boolean gameOver = in.readByte() != 0;
+                if (playerRow < 0 || playerRow >= rows || playerCol < 0 || playerCol >= cols) {
+                    throw new IOException("Corrupt replay checkpoint " + i);
+                }
+                checkpoints.add(new Checkpoint(playerRow, playerCol, gameOver, readBlock(in, layerBytes)));
+            }
+            return new Replay(rows, cols, generator, seed, seeded, mines, moves, moveCount, interval, checkpoints);
+        } catch (EOFException e) {
+            throw new IOException("Corrupt replay: file truncated", e);
+        }
+    }
+
+    private static void writeBlock(DataOutputStream out, byte[] block) throws IOException {
+        out.writeInt(block.length);
+        out.write(block);
+    }
+
+    //Reads compressed block of layer taking layerBytes when inflated. Deflate neither grows data by
+    //more than a few bytes per stored block nor shrinks it below 1/MAX_DEFLATE_RATIO, so lengths outside
+    //those bounds, or past end of file, are refused before anything is allocated for them.
+    private static byte[] readBlock(DataInputStream in, long layerBytes) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > layerBytes + (layerBytes >>> 12) + 64
+                || layerBytes > (long) length * MAX_DEFLATE_RATIO + 64) {
+            throw new IOException("Corrupt replay block");
+        }
+        if (length > in.available()) {
+            throw new IOException("Corrupt replay: file truncated");
+        }
+        byte[] block = new byte[length];
+        in.readFully(block);
+        return block;
+    }
+
+    //Deflates layer words. Visited layers are mostly zero words, so they shrink to a small fraction.
+    static byte[] compress(long[] words) {
+        ByteBuffer raw = ByteBuffer.allocate(words.length * Long.BYTES);
+        raw.asLongBuffer().put(words);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw.array());
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buf, 0, deflater.deflate(buf));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static void decompress(byte[] block, long[] words) throws IOException {
+        byte[] raw = new byte[words.length * Long.BYTES];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block);
+            int n = 0;
+            while (n < raw.length && !inflater.finished()) {
+                int got = inflater.inflate(raw, n, raw.length - n);
+                if (got == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += got;
+            }
+            if (n != raw.length) {
+                throw new IOException("Corrupt replay layer");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt replay layer", e);
+        } finally {
+            inflater.end();
+        }
+        ByteBuffer.wrap(raw).asLongBuffer().get(words);
+    }
+}
@@ -0,0 +1,58 @@
+package minefield;
+
+import javax.swing.*;
+import java.awt.*;
+
+//Play/pause button, move slider for scrubbing and speed choice for a ReplayPlayer.
+public class ReplayControls extends JPanel {
+    private static final Integer[] SPEEDS = {1, 2, 5, 10, 25, 50, 100, 250, 1000};
+
+    private final ReplayPlayer player;
+    private final JButton playPause = new JButton("Play");
+    private final JSlider slider;
+    private final JLabel position = new JLabel();
+    // True while controls are being updated from player, so slider changes aren't fed back as seeks.
+    private boolean updating;
+
+    public ReplayControls(ReplayPlayer player) {
+        super(new BorderLayout(5, 5));
+        this.player = player;
+        this.slider = new JSlider(0, player.getReplay().getMoveCount(), 0);
+
+        JComboBox<Integer> speed = new JComboBox<>(SPEEDS);
+        speed.setSelectedItem(player.getSpeed());
+        speed.addActionListener(e -> player.setSpeed((Integer) speed.getSelectedItem()));
+
+        playPause.addActionListener(e -> {
+            if (player.isPlaying()) {
+                player.pause();
+            } else {
+                player.play();
+            }
+        });
+        slider.addChangeListener(e -> {
+            if (!updating) {
+                player.seek(slider.getValue());
+            }
+        });
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttons.add(playPause);
+        buttons.add(new JLabel("Moves/s"));
+        buttons.add(speed);
+        buttons.add(position);
+        add(buttons, BorderLayout.NORTH);
+        add(slider, BorderLayout.CENTER);
+
+        player.addChangeListener(e -> update());
+        update();
+    }
+
+    private void update() {
+        updating = true;
+        slider.setValue(player.getPosition());
+        updating = false;
+        playPause.setText(player.isPlaying() ? "Pause" : "Play");
+        position.setText(player.getPosition() + " / " + player.getReplay().getMoveCount());
+    }
+}
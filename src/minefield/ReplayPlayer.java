@@ -0,0 +1,111 @@
+package minefield;
+
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+
+//Plays replay on its own model at adjustable speed. Runs on EDT: a Swing Timer steps forward,
+//and seek jumps anywhere through Replay's checkpoints. Listeners hear about every position change.
+public class ReplayPlayer {
+    // Timer ticks at most this often; faster speeds apply several moves per tick.
+    private static final int MIN_TICK_MILLIS = 15;
+
+    private final Replay replay;
+    private final MineFieldModel model;
+    private final Timer timer;
+    private final List<ChangeListener> listeners = new ArrayList<>();
+    private int position;
+    private int movesPerSecond = 10;
+    private int movesPerTick = 1;
+
+    public ReplayPlayer(Replay replay) {
+        this.replay = replay;
+        this.model = replay.createModel();
+        this.timer = new Timer(1000 / movesPerSecond, e -> tick());
+        setSpeed(movesPerSecond);
+    }
+
+    public MineFieldModel getModel() {
+        return model;
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+
+    //Number of moves applied so far, 0 to getReplay().getMoveCount().
+    public int getPosition() {
+        return position;
+    }
+
+    public int getSpeed() {
+        return movesPerSecond;
+    }
+
+    //Sets playback speed in moves per second.
+    public void setSpeed(int movesPerSecond) {
+        this.movesPerSecond = Math.max(1, movesPerSecond);
+        int delay = 1000 / this.movesPerSecond;
+        if (delay >= MIN_TICK_MILLIS) {
+            movesPerTick = 1;
+        } else {
+            delay = MIN_TICK_MILLIS;
+            movesPerTick = (this.movesPerSecond * MIN_TICK_MILLIS + 999) / 1000;
+        }
+        timer.setDelay(delay);
+        fireChanged();
+    }
+
+    public boolean isPlaying() {
+        return timer.isRunning();
+    }
+
+    //Starts playback, from beginning if already at end.
+    public void play() {
+        if (position == replay.getMoveCount()) {
+            seek(0);
+        }
+        timer.start();
+        fireChanged();
+    }
+
+    public void pause() {
+        timer.stop();
+        fireChanged();
+    }
+
+    //Shows state after given number of moves.
+    public void seek(int move) {
+        position = replay.seek(model, position, move);
+        // Replayed moves are not the viewer's own changes.
+        model.setDirty(false);
+        fireChanged();
+    }
+
+    private void tick() {
+        int target = Math.min(replay.getMoveCount(), position + movesPerTick);
+        if (target == position) {
+            timer.stop();
+        } else {
+            position = replay.seek(model, position, target);
+            model.setDirty(false);
+        }
+        if (position == replay.getMoveCount()) {
+            timer.stop();
+        }
+        fireChanged();
+    }
+
+    public void addChangeListener(ChangeListener l) {
+        listeners.add(l);
+    }
+
+    private void fireChanged() {
+        ChangeEvent e = new ChangeEvent(this);
+        for (ChangeListener l : listeners) {
+            l.stateChanged(e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package minefield;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+//Multiplayer variant of MineFieldModel: several players on one board, each moved from any thread.
+//All players start top-left; a player who steps on a mine is out, a player who reaches goal has won,
+//and everyone else plays on. Cells any player visits are revealed for all.
+//
+//Nothing here takes a lock, so moves on different players run in parallel:
+//  - visited cells are set with one atomic OR on their word of an AtomicBitGrid,
+//  - each player's position and status is one long, updated by compare-and-set, and players'
+//    longs sit a cache line apart so moves of different players don't contend on the same line,
+//  - move count is a LongAdder rather than a single shared counter,
+//  - listeners are in a CopyOnWriteArrayList, so they can be added or removed while moves are dispatched.
+//Listeners are called on thread that made the move.
+public class SharedMineFieldModel {
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Longs between neighboring players' slots: 128 bytes, covering adjacent-line prefetch too.
+    private static final int STRIDE = 16;
+
+    // Player status, kept in top two bits of player's slot.
+    private static final long PLAYING = 0;
+    private static final long LOST = 1;
+    private static final long WON = 2;
+
+    private final int rows;
+    private final int cols;
+    private final MineGenerator generator;
+    private final long seed;
+    private final BitGrid mines;
+    private final NeighborCounts neighborCounts;
+    private final AtomicBitGrid visited;
+    private final int players;
+    // Slot of player p at p * STRIDE: status << 62 | row << 31 | col.
+    private final long[] slots;
+    private final LongAdder moves = new LongAdder();
+    private final List<MineFieldListener> listeners = new CopyOnWriteArrayList<>();
+
+    public SharedMineFieldModel(int rows, int cols, int players, MineGenerator generator) {
+        this(rows, cols, players, generator, ThreadLocalRandom.current().nextLong());
+    }
+
+    public SharedMineFieldModel(int rows, int cols, int players, MineGenerator generator, long seed) {
+        if (players <= 0) {
+            throw new IllegalArgumentException("players must be positive: " + players);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.generator = generator;
+        this.seed = seed;
+        this.mines = new BitGrid(rows, cols);
+        generator.generate(mines, seed);
+        this.neighborCounts = new NeighborCounts(mines);
+        this.visited = new AtomicBitGrid(rows, cols);
+        this.players = players;
+        this.slots = new long[players * STRIDE];
+        // Every player starts at (0,0), playing; slots are published to other threads by final field.
+        visited.set(0, 0);
+    }
+
+    private static long pack(long status, int row, int col) {
+        return status << 62 | (long) row << 31 | col;
+    }
+
+    private static long status(long slot) {
+        return slot >>> 62;
+    }
+
+    private static int row(long slot) {
+        return (int) ((slot >>> 31) & Integer.MAX_VALUE);
+    }
+
+    private static int col(long slot) {
+        return (int) (slot & Integer.MAX_VALUE);
+    }
+
+    private long slot(int player) {
+        return (long) SLOTS.getAcquire(slots, player * STRIDE);
+    }
+
+    public void addListener(MineFieldListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(MineFieldListener listener) {
+        listeners.remove(listener);
+    }
+
+    //Moves given player and returns what happened. Safe to call from any thread, also for same player:
+    //concurrent moves of one player are applied one after another, each from where the other left off.
+    public MoveOutcome tryMove(int player, Heading heading) {
+        int index = player * STRIDE;
+        long current;
+        long next;
+        int newRow;
+        int newCol;
+        while (true) {
+            current = (long) SLOTS.getAcquire(slots, index);
+            if (status(current) != PLAYING) {
+                return MoveOutcome.ALREADY_OVER;
+            }
+            newRow = row(current) + heading.getRowDelta();
+            newCol = col(current) + heading.getColDelta();
+            if (newRow < 0 || newRow >= rows || newCol < 0 || newCol >= cols) {
+                return MoveOutcome.BLOCKED;
+            }
+            long status = mines.get(newRow, newCol) ? LOST
+                    : (newRow == rows - 1 && newCol == cols - 1) ? WON : PLAYING;
+            next = pack(status, newRow, newCol);
+            if (SLOTS.compareAndSet(slots, index, current, next)) {
+                break;
+            }
+        }
+        boolean revealed = visited.set(newRow, newCol);
+        moves.increment();
+
+        long status = status(next);
+        if (!listeners.isEmpty()) {
+            MineFieldEvent event = new PlayerMoveEvent(player, heading, row(current), col(current), newRow, newCol,
+                    revealed, status != PLAYING, status == WON);
+            for (MineFieldListener l : listeners) {
+                l.modelChanged(event);
+            }
+        }
+        return status == LOST ? MoveOutcome.MINE : status == WON ? MoveOutcome.WIN : MoveOutcome.MOVED;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getPlayerCount() {
+        return players;
+    }
+
+    public int getPlayerRow(int player) {
+        return row(slot(player));
+    }
+
+    public int getPlayerCol(int player) {
+        return col(slot(player));
+    }
+
+    //True if player stepped on mine or reached goal.
+    public boolean isGameOver(int player) {
+        return status(slot(player)) != PLAYING;
+    }
+
+    public boolean hasWon(int player) {
+        return status(slot(player)) == WON;
+    }
+
+    //True once every player is out or has won.
+    public boolean isGameOver() {
+        for (int p = 0; p < players; p++) {
+            if (!isGameOver(p)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isVisited(int r, int c) {
+        return visited.get(r, c);
+    }
+
+    public boolean isMined(int r, int c) {
+        return mines.get(r, c);
+    }
+
+    public int getNeighborMineCount(int r, int c) {
+        return neighborCounts.get(r, c);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public MineGenerator getGenerator() {
+        return generator;
+    }
+
+    //Total moves made by all players.
+    public long getMoveCount() {
+        return moves.sum();
+    }
+
+    //Single-player copy of board as one player sees it, e.g. to save or show it with regular classes.
+    //Visited cells are copied word by word while others may be moving, so moves in flight may be missing.
+    public MineFieldModel toModel(int player) {
+        long slot = slot(player);
+        MineFieldModel model = new MineFieldModel(mines, visited.toBitGrid(), generator, row(slot), col(slot),
+                status(slot) != PLAYING, moves.sum());
+        model.setSeed(generator, seed);
+        return model;
+    }
+}
@@ -0,0 +1,393 @@
+package minefield;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+//Lets spectators watch a game over TCP. Each spectator first gets a snapshot of the board, then a
+//stream of small deltas, one per move, which it applies with same logic as move journal replay.
+//
+//Game thread only puts moves into a single-producer ring and, if the network thread is asleep,
+//wakes it; encoding, fan-out and socket writes all happen on one selector thread. A snapshot
+//supersedes everything queued before it, so resync drops a spectator's unsent frames (finishing
+//only one already partly written). So at most two snapshots are ever queued, and unsent bytes
+//beyond them may not exceed CLIENT_BUFFER; a spectator that falls further behind is dropped. If the ring itself fills
+//up, spectators are sent a fresh snapshot instead of missed moves.
+//
+//Frames: 'S', int length, game in save format (MineFieldFile.toBytes), or
+//        'D', long model version after move, byte move code (MoveJournal encoding).
+public class SpectatorBroadcaster implements MineFieldListener, Closeable {
+    public static final int DEFAULT_PORT = 4791;
+    public static final byte SNAPSHOT = 'S';
+    public static final byte DELTA = 'D';
+    static final int DELTA_SIZE = 1 + Long.BYTES + 1;
+    // Unsent bytes, besides queued snapshots, one spectator may have before it counts as too slow.
+    static final int CLIENT_BUFFER = 64 * 1024;
+    private static final int RING_SIZE = 1 << 16;
+    private static final int CHUNK_SIZE = 2048;
+    // Ring code telling network thread to resend snapshots, e.g. after game was replaced.
+    private static final byte RESYNC = 0x7F;
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private final List<Spectator> spectators = new ArrayList<>();
+
+    // Game being watched; replaced only on game thread, read by network thread when taking snapshots.
+    private volatile MineFieldModel model;
+    // Bumped whenever game is replaced, so deltas of old game are never applied to snapshot of new one.
+    private volatile int epoch;
+
+    // Single-producer, single-consumer ring: game thread writes at tail, network thread reads at head.
+    private final long[] ringVersions = new long[RING_SIZE];
+    private final int[] ringEpochs = new int[RING_SIZE];
+    private final byte[] ringCodes = new byte[RING_SIZE];
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile boolean overflowed;
+    private final AtomicBoolean sleeping = new AtomicBoolean();
+
+    private volatile boolean closed;
+    private int dropped;
+    // Told if network thread stops on an error; called on that thread. Default prints it to stderr.
+    private volatile Consumer<String> errors = System.err::println;
+
+    //Starts listening for spectators on loopback port (0 picks a free one) and watching model.
+    public SpectatorBroadcaster(MineFieldModel model, int port) throws IOException {
+        this(model, InetAddress.getLoopbackAddress(), port);
+    }
+
+    //Starts listening for spectators on given local address (null for all interfaces, so spectators
+    //on other machines can connect) and port (0 picks a free one), and watching model.
+    public SpectatorBroadcaster(MineFieldModel model, InetAddress address, int port) throws IOException {
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(address, port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.model = model;
+        model.addListener(this);
+        this.thread = new Thread(this::run, "minefield-spectators");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    //Sets where a failure that stops broadcasting is reported.
+    public void setErrorHandler(Consumer<String> handler) {
+        errors = handler;
+    }
+
+    //Switches spectators to another game. Must be called on game thread.
+    public void setModel(MineFieldModel newModel) {
+        model.removeListener(this);
+        epoch++;
+        model = newModel;
+        newModel.addListener(this);
+        enqueue(newModel.getVersion(), RESYNC);
+    }
+
+    //Full refresh: board changed in ways moves don't describe, so spectators need new snapshot.
+    @Override
+    public void modelChanged() {
+        enqueue(model.getVersion(), RESYNC);
+    }
+
+    @Override
+    public void modelChanged(MineFieldEvent event) {
+        enqueue(model.getVersion(), MoveJournal.encode(event));
+    }
+
+    //Game thread's whole share of broadcasting: one ring slot, plus wakeup if network thread sleeps.
+    private void enqueue(long version, byte code) {
+        long t = tail.get();
+        if (t - head.get() == RING_SIZE) {
+            overflowed = true;
+        } else {
+            int i = (int) (t & (RING_SIZE - 1));
+            ringVersions[i] = version;
+            ringEpochs[i] = epoch;
+            ringCodes[i] = code;
+            // Full volatile write, not lazySet: it must not pass read of sleeping below, or a
+            // wakeup could be missed while network thread checks ring and goes to sleep.
+            tail.set(t + 1);
+        }
+        if (sleeping.get() && sleeping.compareAndSet(true, false)) {
+            selector.wakeup();
+        }
+    }
+
+    //Number of spectators connected now.
+    public synchronized int getSpectatorCount() {
+        return spectators.size();
+    }
+
+    //Number of spectators dropped for falling behind.
+    public synchronized int getDroppedCount() {
+        return dropped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        model.removeListener(this);
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                sleeping.set(true);
+                if (head.get() == tail.get() && !overflowed) {
+                    selector.select(1000);
+                } else {
+                    selector.selectNow();
+                }
+                sleeping.set(false);
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isWritable()) {
+                        flush((Spectator) key.attachment());
+                    }
+                }
+                drain();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                errors.accept("Spectator broadcast stopped: " + e.getMessage());
+            }
+        } finally {
+            synchronized (this) {
+                for (Spectator s : spectators) {
+                    s.close();
+                }
+                spectators.clear();
+            }
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException e) {
+                // Shutting down anyway.
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Spectator s = new Spectator(channel, channel.register(selector, 0));
+            s.key.attach(s);
+            // Read epoch after model: a snapshot of replaced game is always followed by a resync.
+            MineFieldModel watched = model;
+            int currentEpoch = epoch;
+            s.resync(encodeSnapshot(watched.snapshot()), currentEpoch);
+            synchronized (this) {
+                spectators.add(s);
+            }
+            flush(s);
+        }
+    }
+
+    //Hands moves from ring to every spectator, then writes what each socket will take.
+    private void drain() {
+        if (overflowed) {
+            overflowed = false;
+            head.set(tail.get());
+            resyncAll();
+        }
+        long h = head.get();
+        long t = tail.get();
+        for (; h < t; h++) {
+            int i = (int) (h & (RING_SIZE - 1));
+            if (ringCodes[i] == RESYNC) {
+                resyncAll();
+                continue;
+            }
+            for (Spectator s : spectators) {
+                if (ringEpochs[i] == s.epoch && ringVersions[i] > s.version) {
+                    s.addDelta(ringVersions[i], ringCodes[i]);
+                }
+            }
+        }
+        head.lazySet(t);
+
+        // Backwards, since flush removes spectators whose connection failed.
+        for (int i = spectators.size() - 1; i >= 0; i--) {
+            Spectator s = spectators.get(i);
+            if (s.isTooSlow()) {
+                synchronized (this) {
+                    s.close();
+                    spectators.remove(i);
+                    dropped++;
+                }
+            } else {
+                flush(s);
+            }
+        }
+    }
+
+    private void resyncAll() {
+        MineFieldModel watched = model;
+        int currentEpoch = epoch;
+        ByteBuffer snapshot = encodeSnapshot(watched.snapshot());
+        for (Spectator s : spectators) {
+            s.resync(snapshot, currentEpoch);
+        }
+    }
+
+    private static ByteBuffer encodeSnapshot(MineFieldSnapshot snapshot) {
+        byte[] bytes = MineFieldFile.toBytes(snapshot);
+        ByteBuffer frame = ByteBuffer.allocate(1 + Integer.BYTES + bytes.length);
+        frame.put(SNAPSHOT).putInt(bytes.length).put(bytes).flip();
+        return frame;
+    }
+
+    private void flush(Spectator s) {
+        try {
+            s.flush();
+        } catch (IOException e) {
+            synchronized (this) {
+                s.close();
+                spectators.remove(s);
+            }
+        }
+    }
+
+    //One connected spectator and frames waiting to be sent to it, oldest first.
+    private static final class Spectator {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        // Last buffer in out while deltas can still be added to it (in fill mode), else null.
+        ByteBuffer filling;
+        // Bytes in out not yet written to socket.
+        long pendingBytes;
+        // Latest snapshot while not fully written, else null.
+        ByteBuffer snapshot;
+        // Frame that was partly written when snapshot was queued, while not fully written, else null.
+        ByteBuffer partial;
+        // Game and version spectator's stream is at; older deltas are skipped.
+        int epoch;
+        long version;
+
+        Spectator(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        //Replaces everything queued with snapshot, except a frame already partly written, which
+        //must be finished to keep stream in step.
+        void resync(ByteBuffer frame, int epoch) {
+            seal();
+            ByteBuffer head = out.peekFirst();
+            out.clear();
+            pendingBytes = 0;
+            partial = null;
+            if (head != null && head.position() > 0) {
+                partial = head;
+                out.add(head);
+                pendingBytes = head.remaining();
+            }
+            snapshot = frame.duplicate();
+            out.add(snapshot);
+            pendingBytes += snapshot.remaining();
+            this.epoch = epoch;
+            this.version = snapshotVersion(frame);
+        }
+
+        //True if unsent bytes, counting snapshots, exceed what queued snapshots plus CLIENT_BUFFER need.
+        boolean isTooSlow() {
+            long allowed = CLIENT_BUFFER;
+            if (snapshot != null) {
+                allowed += snapshot.remaining();
+            }
+            if (partial != null) {
+                allowed += partial.remaining();
+            }
+            return pendingBytes > allowed;
+        }
+
+        void addDelta(long version, byte code) {
+            if (filling == null || filling.remaining() < DELTA_SIZE) {
+                seal();
+                filling = ByteBuffer.allocate(CHUNK_SIZE);
+                out.add(filling);
+            }
+            filling.put(DELTA).putLong(version).put(code);
+            pendingBytes += DELTA_SIZE;
+            this.version = version;
+        }
+
+        private void seal() {
+            if (filling != null) {
+                filling.flip();
+                filling = null;
+            }
+        }
+
+        //Writes as much as socket takes; asks selector for write readiness if anything is left.
+        void flush() throws IOException {
+            seal();
+            while (!out.isEmpty()) {
+                ByteBuffer b = out.peekFirst();
+                pendingBytes -= channel.write(b);
+                if (b.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+                out.pollFirst();
+                if (b == snapshot) {
+                    snapshot = null;
+                } else if (b == partial) {
+                    partial = null;
+                }
+            }
+            key.interestOps(0);
+        }
+
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+    }
+
+    //Model version stored in encoded snapshot frame's save header.
+    static long snapshotVersion(ByteBuffer frame) {
+        return frame.getLong(1 + Integer.BYTES + MineFieldFile.HEADER_SIZE - Long.BYTES);
+    }
+}
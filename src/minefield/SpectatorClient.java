@@ -0,0 +1,179 @@
+package minefield;
+
+import javax.swing.*;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Watches a game shared by SpectatorBroadcaster, keeping a local copy of it up to date.
+//
+//Usage: java minefield.SpectatorClient [--host H] [--port P] [--headless]
+//Shows the game in a read-only window, or with --headless prints a line per move.
+public class SpectatorClient implements Closeable {
+    // Largest snapshot accepted, well above a 10000x10000 board with both layers.
+    private static final int MAX_SNAPSHOT = 64 * 1024 * 1024;
+    // Frames read but not yet applied in window; reading waits when this many are queued.
+    private static final int MAX_QUEUED_FRAMES = 1024;
+    private static final String USAGE = "Usage: java minefield.SpectatorClient [--host H] [--port P] [--headless]";
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private MineFieldModel model;
+
+    public SpectatorClient(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    //Local copy of watched game, or null before first snapshot. Replaced on every snapshot.
+    public MineFieldModel getModel() {
+        return model;
+    }
+
+    //Reads one frame and applies it. Returns the new model after a snapshot, or null after a move.
+    public MineFieldModel next() throws IOException {
+        return apply(readFrame());
+    }
+
+    //Reads one frame without applying it, so frames can be read on one thread and applied on another.
+    public byte[] readFrame() throws IOException {
+        byte type = in.readByte();
+        byte[] frame;
+        if (type == SpectatorBroadcaster.SNAPSHOT) {
+            int length = in.readInt();
+            if (length < 0 || length > MAX_SNAPSHOT) {
+                throw new IOException("Bad snapshot length " + length);
+            }
+            frame = new byte[1 + length];
+            in.readFully(frame, 1, length);
+        } else if (type == SpectatorBroadcaster.DELTA) {
+            frame = new byte[SpectatorBroadcaster.DELTA_SIZE];
+            in.readFully(frame, 1, frame.length - 1);
+        } else {
+            throw new IOException("Unknown frame type " + type);
+        }
+        frame[0] = type;
+        return frame;
+    }
+
+    //Applies frame from readFrame. Returns the new model after a snapshot, or null after a move.
+    public MineFieldModel apply(byte[] frame) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(frame);
+        if (b.get() == SpectatorBroadcaster.SNAPSHOT) {
+            model = MineFieldFile.fromBytes(Arrays.copyOfRange(frame, 1, frame.length));
+            return model;
+        }
+        if (model == null) {
+            throw new IOException("Move before snapshot");
+        }
+        long version = b.getLong();
+        MoveJournal.apply(model, b.get());
+        if (model.getVersion() != version) {
+            throw new IOException("Out of step at version " + model.getVersion() + ", expected " + version);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = InetAddress.getLoopbackAddress().getHostAddress();
+        int port = SpectatorBroadcaster.DEFAULT_PORT;
+        boolean headless = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host": host = CommandLine.value(args, i++, USAGE); break;
+                case "--port": port = Integer.parseInt(CommandLine.value(args, i++, USAGE)); break;
+                case "--headless": headless = true; break;
+                default: CommandLine.fail("Unknown option " + args[i], USAGE);
+            }
+        }
+
+        try (SpectatorClient client = new SpectatorClient(host, port)) {
+            if (headless) {
+                watchHeadless(client);
+            } else {
+                watchInWindow(client);
+            }
+        } catch (EOFException e) {
+            System.out.println("Game no longer shared.");
+        }
+    }
+
+    private static void watchHeadless(SpectatorClient client) throws IOException {
+        while (true) {
+            MineFieldModel snapshot = client.next();
+            MineFieldModel m = client.getModel();
+            if (snapshot != null) {
+                System.out.println("Board " + m.getRows() + "x" + m.getCols() + " at version " + m.getVersion());
+            }
+            System.out.println(m.getVersion() + ": " + m.getPlayerRow() + "," + m.getPlayerCol()
+                    + (m.isGameOver() ? " game over" : ""));
+        }
+    }
+
+    //Applies frames on event thread, so view sees model changing as it would in the game itself.
+    //Frames are handed over through a bounded queue and applied in batches, one event-thread task at a
+    //time; when the window falls behind, reading blocks instead of piling up tasks. A snapshot makes
+    //every frame still queued before it pointless, so those are dropped.
+    private static void watchInWindow(SpectatorClient client) throws Exception {
+        MineFieldFactory factory = new MineFieldFactory();
+        JFrame frame = new JFrame("Mine Field - Spectating");
+        SwingUtilities.invokeAndWait(() -> {
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.setSize(500, 600);
+            frame.setVisible(true);
+        });
+        BlockingQueue<byte[]> frames = new ArrayBlockingQueue<>(MAX_QUEUED_FRAMES);
+        AtomicBoolean scheduled = new AtomicBoolean();
+        Runnable applyQueued = () -> {
+            scheduled.set(false);
+            List<byte[]> batch = new ArrayList<>();
+            frames.drainTo(batch);
+            MineFieldModel shown = null;
+            try {
+                for (byte[] frameBytes : batch) {
+                    MineFieldModel snapshot = client.apply(frameBytes);
+                    if (snapshot != null) {
+                        shown = snapshot;
+                    }
+                }
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(frame, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                System.exit(1);
+            }
+            if (shown != null) {
+                MineFieldView view = factory.makeView(shown);
+                shown.addListener(view);
+                view.modelChanged();
+                frame.setContentPane(view);
+                frame.revalidate();
+            }
+        };
+        while (true) {
+            // Read off event thread; apply on it.
+            byte[] frameBytes = client.readFrame();
+            if (frameBytes[0] == SpectatorBroadcaster.SNAPSHOT) {
+                frames.clear();
+            }
+            frames.put(frameBytes);
+            if (scheduled.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(applyQueued);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package minefield;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+//Cache of pre-rendered cell tiles for every cell state, neighbor count and zoom level.
+//Painting a cell becomes single image blit instead of fill, border and text layout.
+public class TileAtlas {
+    // Tile layout within one zoom level: unvisited, then visited 0..8, then player 0..8.
+    // Second half of array repeats all of them with goal border.
+    private static final int UNVISITED = 0;
+    private static final int VISITED = 1;
+    private static final int PLAYER = VISITED + 9;
+    private static final int STATES = PLAYER + 9;
+
+    // Below this size count text is unreadable, so only colors are drawn.
+    private static final int MIN_TEXT_SIZE = 10;
+    // Below this size grid lines would cover whole cell.
+    private static final int MIN_BORDER_SIZE = 4;
+
+    private final Font font;
+    private final GraphicsConfiguration config;
+    private final Map<Integer, BufferedImage[]> levels = new HashMap<>();
+
+    //Creates atlas drawing counts in given font. Config may be null, e.g. on headless JVMs.
+    public TileAtlas(Font font, GraphicsConfiguration config) {
+        this.font = font;
+        this.config = config;
+    }
+
+    //Returns tile for given cell state at given cell size. Tiles are built on first use per size.
+    public BufferedImage getTile(int cellSize, boolean visited, boolean player, int count, boolean goal) {
+        BufferedImage[] tiles = levels.computeIfAbsent(cellSize, this::buildLevel);
+        int index = !visited ? UNVISITED : (player ? PLAYER : VISITED) + count;
+        return tiles[goal ? index + STATES : index];
+    }
+
+    //Same as getTile, reading cell state from model.
+    public BufferedImage getTile(int cellSize, MineFieldModel model, int r, int c) {
+        boolean visited = model.isVisited(r, c);
+        boolean player = r == model.getPlayerRow() && c == model.getPlayerCol();
+        int count = visited ? model.getNeighborMineCount(r, c) : 0;
+        boolean goal = r == model.getRows() - 1 && c == model.getCols() - 1;
+        return getTile(cellSize, visited, player, count, goal);
+    }
+
+    private BufferedImage[] buildLevel(int cellSize) {
+        BufferedImage[] tiles = new BufferedImage[STATES * 2];
+        for (int goal = 0; goal < 2; goal++) {
+            tiles[goal * STATES + UNVISITED] = render(cellSize, Color.DARK_GRAY, "?", goal == 1);
+            for (int n = 0; n <= 8; n++) {
+                String text = String.valueOf(n);
+                tiles[goal * STATES + VISITED + n] = render(cellSize, Color.LIGHT_GRAY, text, goal == 1);
+                tiles[goal * STATES + PLAYER + n] = render(cellSize, Color.WHITE, text, goal == 1);
+            }
+        }
+        return tiles;
+    }
+
+    private BufferedImage render(int cellSize, Color background, String text, boolean goal) {
+        BufferedImage tile = createImage(config, cellSize, cellSize);
+        Graphics2D g = tile.createGraphics();
+        try {
+            g.setColor(background);
+            g.fillRect(0, 0, cellSize, cellSize);
+            if (cellSize >= MIN_TEXT_SIZE) {
+                g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                g.setFont(font.deriveFont(Font.PLAIN, cellSize * 0.6f));
+                FontMetrics fm = g.getFontMetrics();
+                g.setColor(Color.BLACK);
+                g.drawString(text, (cellSize - fm.stringWidth(text)) / 2,
+                        (cellSize - fm.getHeight()) / 2 + fm.getAscent());
+            }
+            if (cellSize >= MIN_BORDER_SIZE) {
+                g.setColor(Color.GRAY);
+                g.drawRect(0, 0, cellSize - 1, cellSize - 1);
+            }
+            if (goal) {
+                // Goal corner gets 2px green border like label view.
+                g.setColor(Color.GREEN);
+                g.drawRect(0, 0, cellSize - 1, cellSize - 1);
+                if (cellSize >= MIN_BORDER_SIZE) {
+                    g.drawRect(1, 1, cellSize - 3, cellSize - 3);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        return tile;
+    }
+
+    //Creates opaque image matching screen format when possible, so blits need no conversion.
+    static BufferedImage createImage(GraphicsConfiguration config, int width, int height) {
+        if (config != null) {
+            return config.createCompatibleImage(width, height, Transparency.OPAQUE);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+}
@@ -0,0 +1,18 @@
+package minefield;
+
+//Command that takes back last move.
+public class UndoCommand extends Command {
+
+    // Set when there was nothing to undo.
+    private String message;
+
+    @Override
+    public void execute(MineFieldModel model) {
+        message = model.undo() ? null : "Nothing to undo.";
+    }
+
+    @Override
+    public String getMessage() {
+        return message;
+    }
+}